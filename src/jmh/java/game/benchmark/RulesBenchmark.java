@@ -0,0 +1,73 @@
+package game.benchmark;
+
+import game.model.GameModel;
+import game.model.SquareStates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the rule queries and the position accessors of {@link GameModel}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RulesBenchmark {
+
+    private GameModel model;
+    private ArrayList<Integer> positions;
+    private int target;
+
+    @Setup
+    public void setUp() {
+        model = new GameModel();
+        positions = new ArrayList<>(List.of(3, 3, 1, 2, 7, 6));
+        model.setPositions(positions);
+    }
+
+    @Benchmark
+    public boolean canMovePiece() {
+        target = (target + 1) & 63;
+        return model.canMovePiece(target >>> 3, target & 7, SquareStates.KNIGHT);
+    }
+
+    @Benchmark
+    public boolean isInCheck() {
+        return model.isInCheck(SquareStates.KING);
+    }
+
+    /**
+     * Moves the king to the next square and takes the move back, so the journal stays empty
+     * however long the benchmark runs.
+     */
+    @Benchmark
+    public boolean move() {
+        model.move(4, 3, SquareStates.KING);
+        return model.undo();
+    }
+
+    @Benchmark
+    public List<Integer> getPositions() {
+        return model.getPositions();
+    }
+
+    @Benchmark
+    public GameModel setPositions() {
+        model.setPositions(positions);
+        return model;
+    }
+}
@@ -0,0 +1,66 @@
+package game.benchmark;
+
+import game.io.SaveFormat;
+import game.model.GameModel;
+import game.model.SquareStates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization cost of the binary save format of {@link SaveFormat}, without the file I/O.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SaveBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int moves;
+
+    private GameModel model;
+    private GameModel loaded;
+    private ByteArrayOutputStream out;
+    private byte[] saved;
+
+    @Setup
+    public void setUp() throws IOException {
+        model = new GameModel();
+        loaded = new GameModel();
+        for (int i = 0; i < moves; i++) {
+            model.move(i % 2 == 0 ? 4 : 5, 1, SquareStates.KING);
+        }
+        out = new ByteArrayOutputStream();
+        saved = save();
+    }
+
+    @Benchmark
+    public byte[] save() throws IOException {
+        out.reset();
+        SaveFormat.write(model, Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public GameModel load() throws IOException {
+        SaveFormat.read(Channels.newChannel(new ByteArrayInputStream(saved)), loaded);
+        return loaded;
+    }
+}
@@ -0,0 +1,69 @@
+package game.benchmark;
+
+import game.model.GameModel;
+import game.model.Position;
+import game.solver.PuzzleGenerator;
+import game.solver.Solution;
+import game.solver.Solver;
+import game.solver.Tablebase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the solver and of the puzzle generation behind {@code GameController.onNewGame}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SolverBenchmark {
+
+    private Solver solver;
+    private PuzzleGenerator generator;
+    private Position puzzle;
+    private Position hardest;
+    private GameModel model;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        solver = new Solver(8);
+        generator = new PuzzleGenerator(Tablebase.generate(8), 42);
+        puzzle = new Position(8);
+        hardest = generator.next(generator.maxLength());
+        model = new GameModel();
+    }
+
+    @Benchmark
+    public Solution solveHardest() {
+        return solver.solve(hardest);
+    }
+
+    @Benchmark
+    public Solution solveRandom() {
+        generator.next(puzzle);
+        return solver.solve(puzzle);
+    }
+
+    /**
+     * Generates a puzzle and applies it to a model, as a new game does.
+     */
+    @Benchmark
+    public GameModel newGame() {
+        generator.next(puzzle);
+        model.setPosition(puzzle);
+        return model;
+    }
+}
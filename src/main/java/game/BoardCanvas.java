@@ -0,0 +1,174 @@
+package game;
+
+import game.metrics.Histogram;
+import game.metrics.Metrics;
+import game.model.GameModel;
+import game.model.Moves;
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.paint.Color;
+import org.tinylog.Logger;
+
+/**
+ * Draws the board on a single {@link Canvas} instead of one node per square.
+ * Changes of the model only mark the board dirty; once per pulse the squares whose piece or goal
+ * changed since the last frame are repainted.
+ * The duration of every frame is recorded in the {@code canvas.frame} histogram of the {@link Metrics}.
+ */
+public class BoardCanvas extends Canvas {
+
+    private static final Color DARK = Color.web("#9DC08B");
+    private static final Color LIGHT = Color.web("#EDF1D6");
+    private static final Color HINT = Color.web("#E8A317");
+    private static final double PIECE_SCALE = 0.8;
+
+    private static final Histogram FRAME = Metrics.histogram("canvas.frame");
+
+    private final GameModel model;
+    private final int size;
+    private final double squareSize;
+
+    /**
+     * The squares of the pieces and the goal in the last painted frame.
+     */
+    private int paintedKing;
+    private int paintedKnight;
+    private int paintedGoal;
+    private boolean dirty;
+
+    /**
+     * The squares of the highlighted hint, or -1.
+     */
+    private int hintFrom = -1;
+    private int hintTo = -1;
+
+    private final AnimationTimer pulse = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            stop();
+            if (dirty) {
+                paintChanges();
+            }
+        }
+    };
+
+    /**
+     * Creates a canvas showing a model.
+     * @param model the model to show
+     * @param width the width and height of the board in pixels
+     */
+    public BoardCanvas(GameModel model, double width) {
+        super(width, width);
+        this.model = model;
+        this.size = model.getSize();
+        this.squareSize = width / size;
+        paintAll();
+        model.positionProperty().addListener((observable, oldValue, newValue) -> {
+            dirty = true;
+            pulse.start();
+        });
+    }
+
+    /**
+     * Gets the row of a y coordinate of the canvas.
+     */
+    public int rowAt(double y) {
+        return (int) (y / squareSize);
+    }
+
+    /**
+     * Gets the column of an x coordinate of the canvas.
+     */
+    public int colAt(double x) {
+        return (int) (x / squareSize);
+    }
+
+    /**
+     * Highlights the squares of a move, replacing the previous highlight.
+     * @param move the move, encoded by {@link Moves}, or -1 to remove the highlight
+     */
+    public void setHint(int move) {
+        int oldFrom = hintFrom;
+        int oldTo = hintTo;
+        hintFrom = move < 0 ? -1 : Moves.from(move);
+        hintTo = move < 0 ? -1 : Moves.to(move);
+        for (int square : new int[]{oldFrom, oldTo, hintFrom, hintTo}) {
+            if (square >= 0) {
+                paintSquare(square);
+            }
+        }
+    }
+
+    /**
+     * Repaints every square.
+     */
+    public void paintAll() {
+        long start = System.nanoTime();
+        for (int square = 0; square < size * size; square++) {
+            paintSquare(square);
+        }
+        rememberPainted();
+        dirty = false;
+        recordFrame(System.nanoTime() - start);
+    }
+
+    /**
+     * Repaints the squares that changed since the last frame.
+     */
+    private void paintChanges() {
+        long start = System.nanoTime();
+        var position = model.getPosition();
+        repaintIfMoved(paintedKing, position.king());
+        repaintIfMoved(paintedKnight, position.knight());
+        repaintIfMoved(paintedGoal, position.goal());
+        rememberPainted();
+        dirty = false;
+        recordFrame(System.nanoTime() - start);
+    }
+
+    private void rememberPainted() {
+        var position = model.getPosition();
+        paintedKing = position.king();
+        paintedKnight = position.knight();
+        paintedGoal = position.goal();
+    }
+
+    private void repaintIfMoved(int before, int after) {
+        if (before != after) {
+            if (before >= 0) {
+                paintSquare(before);
+            }
+            if (after >= 0) {
+                paintSquare(after);
+            }
+        }
+    }
+
+    private void paintSquare(int square) {
+        var g = getGraphicsContext2D();
+        int row = square / size;
+        int col = square % size;
+        double x = col * squareSize;
+        double y = row * squareSize;
+        g.setFill((row + col) % 2 == 1 ? DARK : LIGHT);
+        g.fillRect(x, y, squareSize, squareSize);
+        var image = ImageCache.get(model.getPosition().stateAt(square));
+        if (image != null) {
+            double scale = Math.min(squareSize * PIECE_SCALE / image.getWidth(), squareSize * PIECE_SCALE / image.getHeight());
+            scale = Math.min(scale, 1);
+            double w = image.getWidth() * scale;
+            double h = image.getHeight() * scale;
+            g.drawImage(image, x + (squareSize - w) / 2, y + (squareSize - h) / 2, w, h);
+        }
+        if (square == hintFrom || square == hintTo) {
+            g.setStroke(HINT);
+            g.setLineWidth(Math.max(2, squareSize / 16));
+            g.strokeRect(x + g.getLineWidth() / 2, y + g.getLineWidth() / 2, squareSize - g.getLineWidth(), squareSize - g.getLineWidth());
+        }
+    }
+
+    private void recordFrame(long nanos) {
+        FRAME.record(nanos);
+        Logger.trace("Frame painted in {} us", nanos / 1000);
+    }
+}
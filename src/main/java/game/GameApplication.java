@@ -1,5 +1,6 @@
 package game;
 
+import game.metrics.Metrics;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
@@ -10,19 +11,84 @@ import javafx.scene.control.ButtonType;
 import javafx.scene.image.Image;
 import javafx.scene.paint.Color;
 import javafx.stage.Stage;
+import org.tinylog.Logger;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 public class GameApplication extends Application {
+
+    private GameController controller;
+    private CompletableFuture<FXMLLoader> view;
+    private CompletableFuture<Image> icon;
+
+    /**
+     * Starts loading the FXML with its controller, decoding the window icon and decoding the piece images,
+     * each on its own thread, and the periodic metrics dump if {@code -Dgame.metrics.dump=<seconds>} is set.
+     * The scene is not shown yet, so it can be built off the JavaFX application thread.
+     */
+    @Override
+    public void init() {
+        view = preload("fxml-preloader", () -> {
+            var loader = new FXMLLoader(getClass().getResource("/game.fxml"));
+            try {
+                loader.load();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return loader;
+        });
+        icon = preload("icon-preloader", () -> new Image("/knighticon.png"));
+        ImageCache.preloadAsync();
+        var dumpSeconds = Long.getLong("game.metrics.dump");
+        if (dumpSeconds != null) {
+            Metrics.startDump(Duration.ofSeconds(dumpSeconds));
+        }
+    }
+
+    /**
+     * Finishes the pending autosave and logs the metrics of the session.
+     */
+    @Override
+    public void stop() {
+        if (controller != null) {
+            controller.shutdown();
+        }
+        Logger.info("Metrics:\n{}", Metrics.dump());
+    }
+
+    /**
+     * Runs a task on a new daemon thread.
+     */
+    private static <T> CompletableFuture<T> preload(String name, Supplier<T> task) {
+        var future = new CompletableFuture<T>();
+        var thread = new Thread(() -> {
+            try {
+                future.complete(task.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+        return future;
+    }
+
     @Override
     public void start(Stage stage) throws Exception {
-        Parent root = FXMLLoader.load(getClass().getResource("/game.fxml"));
+        var loader = view.get();
+        Parent root = loader.getRoot();
+        controller = loader.getController();
         stage.setTitle("Király és huszár kihívás");
-        Image icon = new Image("/knighticon.png");
         Scene scene = new Scene(root);
-        stage.getIcons().add(icon);
+        stage.getIcons().add(icon.get());
         stage.setScene(scene);
         stage.setResizable(false);
+        Startup.measureFirstFrame(scene);
         stage.show();
         stage.setOnCloseRequest(e -> {
             e.consume();
@@ -1,60 +1,267 @@
 package game;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import game.io.SaveService;
 import game.model.GameModel;
+import game.model.Moves;
+import game.model.Position;
 import game.model.SquareStates;
+import game.metrics.Histogram;
+import game.metrics.Metrics;
+import game.replay.Replay;
+import game.replay.ReplayPlayer;
+import game.solver.HintService;
+import game.solver.PuzzleCatalog;
+import game.solver.PuzzleGenerator;
+import game.solver.Tablebase;
 import javafx.application.Platform;
-import javafx.beans.binding.ObjectBinding;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
-import javafx.scene.image.Image;
+import javafx.scene.control.ChoiceDialog;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.TextInputDialog;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.ColumnConstraints;
 import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.RowConstraints;
 import javafx.scene.layout.StackPane;
 import org.tinylog.Logger;
 
 import java.awt.*;
-import java.io.File;
 import java.io.IOException;
 import java.net.URI;
-import java.util.ArrayList;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Optional;
-import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
 
-import static game.model.GameModel.SIZE;
 import static game.model.SquareStates.*;
 
 public class GameController {
 
+    /**
+     * Whether debug logging is enabled, checked once so disabled logging costs nothing in the event handlers
+     */
+    private static final boolean DEBUG = Logger.isDebugEnabled();
+
+    private static final Histogram CLICK_RENDER = Metrics.histogram("click.render");
+    private static final Histogram MOVE_VALIDATE = Metrics.histogram("move.validate");
+    private static final Histogram SAVE_WRITE = Metrics.histogram("save.write");
+    private static final Histogram SAVE_READ = Metrics.histogram("save.read");
+    private static final Histogram PUZZLE_GENERATE = Metrics.histogram("puzzle.generate");
+    private static final LongAdder MOVES = Metrics.counter("moves");
+    private static final LongAdder ILLEGAL_MOVES = Metrics.counter("moves.illegal");
+    private static final LongAdder UNDOS = Metrics.counter("undos");
+    private static final LongAdder REDOS = Metrics.counter("redos");
+    private static final LongAdder HINTS = Metrics.counter("hints");
 
     @FXML
     private GridPane board;
 
-    private GameModel model = new GameModel();
+    /**
+     * The file of the saved game
+     */
+    private static final Path SAVE_FILE = Path.of("save.bin");
+
+    /**
+     * The JSON save file of earlier versions, loaded if there is no binary save
+     */
+    private static final Path LEGACY_SAVE_FILE = Path.of("save.json");
+
+    /**
+     * The store of the named save slots
+     */
+    private static final Path SLOTS_FILE = Path.of("saves.khs");
+
+    /**
+     * The file written after every move
+     */
+    private static final Path AUTOSAVE_FILE = Path.of("autosave.bin");
+
+    private GameModel model = new GameModel(Integer.getInteger("game.size", GameModel.DEFAULT_SIZE));
+
+    /**
+     * Generates the puzzles of new games, loaded in the background when the window opens
+     */
+    private CompletableFuture<PuzzleGenerator> generator;
+
+    /**
+     * The difficulty of new games
+     */
+    private Difficulty difficulty = Difficulty.ANY;
+
+    /**
+     * The ranges of optimal solution lengths offered for new games, as thirds of the lengths of the board,
+     * always at least one length between 1 and the longest, however short the longest is
+     */
+    private enum Difficulty {
+        ANY, EASY, MEDIUM, HARD;
+
+        int minLength(int maxLength) {
+            int min = switch (this) {
+                case ANY, EASY -> 1;
+                case MEDIUM -> maxLength / 3 + 1;
+                case HARD -> 2 * maxLength / 3 + 1;
+            };
+            return Math.max(1, Math.min(min, maxLength));
+        }
+
+        int maxLength(int maxLength) {
+            int max = switch (this) {
+                case ANY, HARD -> maxLength;
+                case EASY -> maxLength / 3;
+                case MEDIUM -> 2 * maxLength / 3;
+            };
+            return Math.max(minLength(maxLength), Math.min(max, maxLength));
+        }
+    }
+
+    /**
+     * Picks the puzzles of new games off the JavaFX application thread, one at a time
+     */
+    private final ExecutorService puzzles = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "puzzle-generator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Computes the hint of every new position in the background
+     */
+    private final HintService hints = new HintService(model.getSize());
+
+    /**
+     * Saves and loads games off the JavaFX application thread
+     */
+    private final SaveService saves = new SaveService(Platform::runLater);
+
+    /**
+     * The time between two moves of a replay, 0 to jump to the end
+     */
+    private static final Duration REPLAY_DELAY = Duration.ofMillis(Integer.getInteger("game.replay.delay", 500));
+
+    /**
+     * The running replay, or null
+     */
+    private ReplayPlayer replayer;
+
+    /**
+     * The squares of the grid, or null when the board is drawn on a canvas
+     */
+    private StackPane[] squares;
+
+    /**
+     * The images of the squares of the grid, or null when the board is drawn on a canvas
+     */
+    private ImageView[] pieces;
+
+    /**
+     * The canvas of the board, or null when the board is a grid
+     */
+    private BoardCanvas canvas;
 
     /**
-     * Stores the moves made by the user
+     * The highlighted hint, or NO_HINT
      */
-    ArrayList<MoveTracker> undoTracker = new ArrayList<>();
+    private int shownHint = HintService.NO_HINT;
 
     /**
-     * Stores the moves undone by the user
+     * The time of the last click that has not been rendered yet, or 0
      */
-    ArrayList<MoveTracker> redoTracker = new ArrayList<>();
+    private long clickNanos;
+    private boolean pulseListenerAdded;
 
     @FXML
     private void initialize(){
-        for (var i = 0; i < board.getRowCount(); i++) {
-            for (var j = 0; j < board.getColumnCount(); j++) {
-                var square = createSquare(i, j);
-                board.add(square, j, i);
+        if ("canvas".equals(System.getProperty("game.renderer"))) {
+            useCanvas();
+        } else {
+            if (model.getSize() != board.getRowCount()) {
+                resizeBoard(model.getSize());
+            }
+            squares = new StackPane[model.getSize() * model.getSize()];
+            pieces = new ImageView[squares.length];
+            for (var i = 0; i < model.getSize(); i++) {
+                for (var j = 0; j < model.getSize(); j++) {
+                    var square = createSquare(i, j);
+                    squares[i * model.getSize() + j] = square;
+                    board.add(square, j, i);
+                }
+            }
+            // one listener for the whole board: the old and the new position tell which squares changed
+            model.positionProperty().addListener((observable, oldValue, newValue) -> {
+                for (var piece : new SquareStates[]{KING, KNIGHT, GOAL}) {
+                    showSquare(Position.packedSquare(oldValue.longValue(), piece));
+                    showSquare(Position.packedSquare(newValue.longValue(), piece));
+                }
+            });
+        }
+        hints.precompute(model.getPosition());
+        generator = CompletableFuture.supplyAsync(this::createGenerator);
+    }
+
+    /**
+     * Maps the tablebase and the puzzle catalog of the board size, building them on the first run, and hands
+     * the tablebase to the hints; falls back to sampling on boards too large for a tablebase
+     */
+    private PuzzleGenerator createGenerator() {
+        long seed = System.nanoTime();
+        int size = model.getSize();
+        if (size <= PuzzleGenerator.TABLEBASE_MAX_SIZE) {
+            var tablebaseFile = Path.of("tablebase-" + size + ".bin");
+            var file = Path.of("puzzles-" + size + ".khpc");
+            try {
+                long start = System.nanoTime();
+                var tablebase = Tablebase.loadOrGenerate(tablebaseFile, size);
+                hints.setTablebase(tablebase);
+                var catalog = PuzzleCatalog.loadOrBuild(file, tablebase);
+                Logger.debug("Loaded {} puzzles from {} in {} ms", catalog.count(), file, (System.nanoTime() - start) / 1_000_000);
+                return new PuzzleGenerator(catalog, seed);
+            } catch (IOException e) {
+                Logger.warn(e, "Error reading {} or {}, generating the puzzles in memory", tablebaseFile, file);
+                return PuzzleGenerator.forSize(size, seed);
             }
         }
+        return PuzzleGenerator.sampling(size, seed);
+    }
+
+    /**
+     * Replaces the grid of squares with a single canvas, which scales better to large boards
+     */
+    private void useCanvas() {
+        canvas = new BoardCanvas(model, board.getPrefWidth());
+        canvas.setLayoutX(board.getLayoutX());
+        canvas.setLayoutY(board.getLayoutY());
+        canvas.setOnMouseClicked(event -> handleSquareClick(canvas.rowAt(event.getY()), canvas.colAt(event.getX())));
+        var parent = (Pane) board.getParent();
+        parent.getChildren().set(parent.getChildren().indexOf(board), canvas);
+        Logger.debug("Rendering the board on a canvas");
+    }
+
+    /**
+     * Replaces the row and column constraints of the FXML board, which describe the default board
+     * @param size the number of rows and columns
+     */
+    private void resizeBoard(int size) {
+        board.getRowConstraints().clear();
+        board.getColumnConstraints().clear();
+        for (var i = 0; i < size; i++) {
+            var row = new RowConstraints();
+            row.setPercentHeight(100.0 / size);
+            board.getRowConstraints().add(row);
+            var column = new ColumnConstraints();
+            column.setPercentWidth(100.0 / size);
+            board.getColumnConstraints().add(column);
+        }
     }
 
     /**
@@ -73,28 +280,28 @@ public class GameController {
             square.setStyle("-fx-background-color: #EDF1D6");
         }
         var piece = new ImageView();
-
-        piece.imageProperty().bind(
-                new ObjectBinding<Image>() {
-                    {
-                        super.bind(model.squareProperty(i, j));
-                    }
-                    @Override
-                    protected Image computeValue() {
-                        return switch (model.squareProperty(i, j).get()) {
-                            case KNIGHT -> new Image(getClass().getResourceAsStream("/knight.png"));
-                            case KING -> new Image(getClass().getResourceAsStream("/king.png"));
-                            case GOAL -> new Image(getClass().getResourceAsStream("/goal.png"));
-                            case NONE -> null;
-                        };
-                    }
-                }
-        );
+        if (model.getSize() != GameModel.DEFAULT_SIZE) {
+            piece.setFitWidth(board.getPrefWidth() / model.getSize() * 0.8);
+            piece.setFitHeight(board.getPrefHeight() / model.getSize() * 0.8);
+            piece.setPreserveRatio(true);
+        }
+        piece.setImage(ImageCache.get(model.getSquareState(i, j)));
+        pieces[i * model.getSize() + j] = piece;
         square.getChildren().add(piece);
         square.setOnMouseClicked(this::handleMouseClick);
         return square;
     }
 
+    /**
+     * Shows the piece or the goal standing on a square of the grid
+     * @param square the square, or NO_SQUARE
+     */
+    private void showSquare(int square) {
+        if (square != Position.NO_SQUARE) {
+            pieces[square].setImage(ImageCache.get(model.getPosition().stateAt(square)));
+        }
+    }
+
     private SquareStates selectedPiece = null;
 
     /**
@@ -104,37 +311,53 @@ public class GameController {
     @FXML
     public void handleMouseClick(MouseEvent event) {
         var square = (StackPane) event.getSource();
-        var row = GridPane.getRowIndex(square);
-        var col = GridPane.getColumnIndex(square);
+        handleSquareClick(GridPane.getRowIndex(square), GridPane.getColumnIndex(square));
+    }
 
+    /**
+     * Selects, deselects or moves a piece when a square is clicked
+     * @param row the row of the clicked square
+     * @param col the column of the clicked square
+     */
+    private void handleSquareClick(int row, int col) {
         //check if the selected square is within valid ranges
-        if (row < 0 || row > SIZE || col < 0 || col > SIZE) {
+        if (row < 0 || row >= model.getSize() || col < 0 || col >= model.getSize()) {
             return;
         }
+        clickNanos = System.nanoTime();
+        measureRendering();
         // the state of the newly clicked square
         SquareStates newSelectedState = model.getSquareState(row,col);
         // if the clicked square is empty and a chess piece is selected
         if (newSelectedState == NONE && selectedPiece != null){
-            if (model.canMovePiece(row,col,selectedPiece)){
-                undoTracker.add(new MoveTracker(row,col,selectedPiece,model.getRow(selectedPiece),model.getCol(selectedPiece)));
-                redoTracker.clear();
+            if (isLegalMove(row,col)){
                 model.move(row,col,selectedPiece);
-                Logger.debug("{} successfully moved to ({},{})",selectedPiece,row,col);
+                if (DEBUG) {
+                    Logger.debug("{} successfully moved to ({},{})",selectedPiece,row,col);
+                }
                 selectedPiece = null;
+                positionChanged();
+                int repetitions = model.getRepetitions();
+                if (repetitions > 0) {
+                    Logger.info("Position repeated {} time(s): the pieces are going in circles", repetitions);
+                }
             }
-            else {
+            else if (DEBUG) {
                 Logger.debug("{} cannot move to ({},{})",selectedPiece,row,col);
             }
         }
         // if successfully moved into goal
         else if (newSelectedState == GOAL && selectedPiece != null){
-            if (model.canMovePiece(row,col,selectedPiece)){
+            if (isLegalMove(row,col)){
                 model.move(row,col,selectedPiece);
-                Logger.debug("{} successfully moved into goal",selectedPiece);
+                if (DEBUG) {
+                    Logger.debug("{} successfully moved into goal",selectedPiece);
+                }
                 selectedPiece = null;
+                positionChanged();
                 winGame();
             }
-            else {
+            else if (DEBUG) {
                 Logger.debug("{} cannot move to ({},{})",selectedPiece,row,col);
             }
 
@@ -144,9 +367,11 @@ public class GameController {
         else if (selectedPiece == null && newSelectedState != NONE && newSelectedState != GOAL){
             if (model.isInCheck(newSelectedState)){
                 selectedPiece = newSelectedState;
-                Logger.debug("Selected {} on square ({},{})",selectedPiece,row,col);
+                if (DEBUG) {
+                    Logger.debug("Selected {} on square ({},{})",selectedPiece,row,col);
+                }
             }
-            else {
+            else if (DEBUG) {
                 Logger.debug("{} is not in check",newSelectedState);
             }
 
@@ -155,98 +380,181 @@ public class GameController {
         }
         // if clicked on the same piece as before
         else if (selectedPiece == newSelectedState){
-            Logger.debug("Deselected {}",selectedPiece);
+            if (DEBUG) {
+                Logger.debug("Deselected {}",selectedPiece);
+            }
             selectedPiece = null;
         }
 
     }
 
     /**
-     * Clears the board and sets the pieces to a new random position
+     * Checks if the selected piece can move to a square, timing the check
      */
-    public void onNewGame(ActionEvent actionEvent) {
-        Logger.debug("New game started");
-        // reset variables
-        selectedPiece = null;
-        undoTracker.clear();
-        redoTracker.clear();
-        model.clearBoard();
-
-        // Generating random numbers
-        Random random = new Random();
-        int kingX = random.nextInt(8);
-        int kingY = random.nextInt(8);
-        int knightX = random.nextInt(8);
-        int knightY = random.nextInt(8);
-        int goalX = random.nextInt(8);
-        int goalY = random.nextInt(8);
-
-        model.setKing(kingX,kingY);
-        model.setKnight(knightX,knightY);
-
-        // Checks if the random numbers are the same and at least one piece is in check
-        while (!model.isInCheck(KING) && !model.isInCheck(KNIGHT) || kingX == knightX || kingY == knightY){
-
-                knightX = random.nextInt(8);
-                knightY = random.nextInt(8);
-                kingX = random.nextInt(8);
-                kingY = random.nextInt(8);
-                model.setKing(kingX,kingY);
-                model.setKnight(knightX,knightY);
-
+    private boolean isLegalMove(int row, int col) {
+        long start = System.nanoTime();
+        boolean legal = model.canMovePiece(row,col,selectedPiece);
+        MOVE_VALIDATE.recordSince(start);
+        (legal ? MOVES : ILLEGAL_MOVES).increment();
+        return legal;
+    }
 
+    /**
+     * Records the time from a click to the layout of the next pulse, the last step before the scene is rendered
+     */
+    private void measureRendering() {
+        if (pulseListenerAdded) {
+            return;
         }
-        model.setBoard(kingX,kingY, KING);
-        model.setBoard(knightX,knightY, KNIGHT);
-
-        while ((goalX == kingX && goalY == kingY) || (goalX == knightX && goalY == knightY)){
-            goalX = random.nextInt(8);
-            goalY = random.nextInt(8);
+        var scene = (canvas != null ? canvas : board).getScene();
+        if (scene != null) {
+            scene.addPostLayoutPulseListener(() -> {
+                if (clickNanos != 0) {
+                    CLICK_RENDER.recordSince(clickNanos);
+                    clickNanos = 0;
+                }
+            });
+            pulseListenerAdded = true;
         }
+    }
 
-        model.setBoard(goalX,goalY, GOAL);
-        model.setGoal(goalX,goalY);
+    /**
+     * Clears the board and sets the pieces to a new random, solvable position, picked in the background
+     */
+    public void onNewGame(ActionEvent actionEvent) {
+        Logger.debug("New game started");
+        var difficulty = this.difficulty;
+        int size = model.getSize();
+        // waits for the catalog if it is still being built, and for a sampled puzzle, without blocking the window
+        generator.thenApplyAsync(generator -> nextPuzzle(generator, difficulty, size), puzzles)
+                .whenCompleteAsync((puzzle, error) -> {
+                    if (error != null) {
+                        var cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                        Logger.error(cause, "Error generating a new game");
+                        Alert alert = new Alert(Alert.AlertType.ERROR);
+                        alert.setTitle("New game");
+                        alert.setHeaderText("Could not generate a new game");
+                        alert.setContentText(cause.getMessage());
+                        alert.show();
+                        return;
+                    }
+                    // reset variables
+                    selectedPiece = null;
+                    model.setPosition(puzzle);
+                    positionChanged();
+                }, Platform::runLater);
     }
 
     /**
-     * Saves the current state of the board, the undoTracker and the redoTracker using jackson
+     * Picks the puzzle of a new game on the puzzle thread
      */
-    public void onSave(ActionEvent actionEvent) throws JsonProcessingException {
-        Logger.debug("Saving game...");
-        // stores the current state of the board, the undoTracker and the redoTracker using jackson
-        ObjectMapper objectMapper = new ObjectMapper();
-        ArrayList<Object> save = new ArrayList<>();
-        save.add(model.getPositions());
-        save.add(objectMapper.writeValueAsString(undoTracker));
-        save.add(objectMapper.writeValueAsString(redoTracker));
-        try {
-            objectMapper.writeValue(new File("save.json"),save);
-        } catch (IOException e) {
-            Logger.error(e,"Error saving game");
+    private static Position nextPuzzle(PuzzleGenerator generator, Difficulty difficulty, int size) {
+        var puzzle = new Position(size);
+        long start = System.nanoTime();
+        if (generator.isEnumerated()) {
+            int maxLength = generator.maxLength();
+            generator.next(difficulty.minLength(maxLength), difficulty.maxLength(maxLength), puzzle);
+        } else {
+            generator.next(puzzle);
         }
+        PUZZLE_GENERATE.recordSince(start);
+        return puzzle;
+    }
+
+    /**
+     * Sets the difficulty of the next new games from the user data of the selected menu item
+     */
+    public void onDifficulty(ActionEvent actionEvent) {
+        difficulty = Difficulty.valueOf((String) ((MenuItem) actionEvent.getSource()).getUserData());
+        Logger.debug("Difficulty set to {}", difficulty);
+    }
 
+    /**
+     * Saves the current state of the board and the move journal in the binary save format, in the background
+     */
+    public void onSave(ActionEvent actionEvent) {
+        Logger.debug("Saving game...");
+        long start = System.nanoTime();
+        saves.save(model, SAVE_FILE).whenComplete((ignored, e) -> {
+            if (e != null) {
+                Logger.error(e.getCause(), "Error saving game");
+            } else {
+                SAVE_WRITE.recordSince(start);
+            }
+        });
     }
 
     /**
-     * Loads the save.json file and sets the board to the saved state, and sets the undoTracker and redoTracker to the saved state
+     * Loads the saved game in the background, falling back to the JSON save of earlier versions,
+     * and sets the board and the move journal to the saved state once it is read
      */
-    public void onLoad(ActionEvent actionEvent) throws JsonProcessingException {
+    public void onLoad(ActionEvent actionEvent) {
         Logger.debug("Loading game...");
-        // loads save.json sets the board to the saved state, and sets the undoTracker and redoTracker to the saved state
-        ObjectMapper objectMapper = new ObjectMapper();
-        ArrayList<Object> load = new ArrayList<>();
-        try {
-            load = objectMapper.readValue(new File("save.json"), new TypeReference<ArrayList<Object>>() {});
-        } catch (IOException e) {
-            Logger.error(e,"Error loading game");
-        }
-        model.setPositions((ArrayList<Integer>) load.get(0));
-        undoTracker.clear();
-        redoTracker.clear();
-        undoTracker= objectMapper.readValue((String) load.get(1), new TypeReference<ArrayList<MoveTracker>>() {});
-        redoTracker= objectMapper.readValue((String) load.get(2), new TypeReference<ArrayList<MoveTracker>>() {});
+        var file = Files.exists(SAVE_FILE) ? SAVE_FILE : LEGACY_SAVE_FILE;
+        long start = System.nanoTime();
+        saves.load(file, model).whenCompleteAsync((ignored, e) -> {
+            if (e != null) {
+                Logger.error(e.getCause(), "Error loading game");
+                return;
+            }
+            SAVE_READ.recordSince(start);
+            selectedPiece = null;
+            positionChanged();
+        }, Platform::runLater);
+    }
 
+    /**
+     * Asks for a name and saves the game into the slot of that name, in the background
+     */
+    public void onSaveSlot(ActionEvent actionEvent) {
+        var dialog = new TextInputDialog();
+        dialog.setTitle("Save to slot");
+        dialog.setHeaderText("Name of the save slot");
+        dialog.showAndWait().map(String::strip).filter(name -> !name.isEmpty()).ifPresent(name ->
+                saves.saveSlot(SLOTS_FILE, name, model).whenComplete((ignored, e) -> {
+                    if (e != null) {
+                        Logger.error(e.getCause(), "Error saving slot {}", name);
+                    }
+                }));
+    }
+
+    /**
+     * Lists the save slots and loads the chosen one, in the background
+     */
+    public void onLoadSlot(ActionEvent actionEvent) {
+        saves.listSlots(SLOTS_FILE).thenAcceptAsync(names -> {
+            if (names.isEmpty()) {
+                Logger.debug("No save slots");
+                return;
+            }
+            var dialog = new ChoiceDialog<>(names.get(names.size() - 1), names);
+            dialog.setTitle("Load slot");
+            dialog.setHeaderText("Choose a save slot");
+            dialog.showAndWait().ifPresent(name ->
+                    saves.loadSlot(SLOTS_FILE, name, model).whenCompleteAsync((ignored, e) -> {
+                        if (e != null) {
+                            Logger.error(e.getCause(), "Error loading slot {}", name);
+                            return;
+                        }
+                        selectedPiece = null;
+                        positionChanged();
+                    }, Platform::runLater));
+        }, Platform::runLater).exceptionally(e -> {
+            Logger.error(e.getCause(), "Error listing the save slots");
+            return null;
+        });
+    }
 
+    /**
+     * Writes the pending autosave and stops the background threads
+     */
+    public void shutdown() {
+        if (replayer != null) {
+            replayer.close();
+        }
+        puzzles.shutdownNow();
+        hints.close();
+        saves.close();
     }
 
     /**
@@ -268,44 +576,95 @@ public class GameController {
      * Undoes the last move
      */
     public void onUndo(ActionEvent actionEvent) {
-        Logger.debug("Undoing move");
-        try{
-            //gets the last element of the moveTracker arraylist
-            MoveTracker lastMove = undoTracker.get(undoTracker.size()-1);
-            //moves the piece back to its previous position
-            model.move(lastMove.getPrevRow(),lastMove.getPrevCol(),lastMove.getPrevPiece());
-            // adds the last move to redoTracker
-            redoTracker.add(lastMove);
-            //removes the last element of the arraylist
-            undoTracker.remove(undoTracker.size()-1);
-        }
-        catch (Exception e){
+        if (model.undo()) {
+            UNDOS.increment();
+            positionChanged();
+        } else if (DEBUG) {
             Logger.debug("No more moves to undo");
         }
-
-
     }
 
     /**
      * Redoes the last move
      */
     public void onRedo(ActionEvent actionEvent) {
-        Logger.debug("Redoing move");
-        try{
-            //gets the last element of the redoTracker arraylist
-            MoveTracker lastMove = redoTracker.get(redoTracker.size()-1);
-            //moves the piece back to its previous position
-            model.move(lastMove.getCurrentRow(),lastMove.getCurrentCol(),lastMove.getPrevPiece());
-            // adds the last move to undoTracker
-            undoTracker.add(lastMove);
-            //removes the last element of the arraylist
-            redoTracker.remove(redoTracker.size()-1);
-        }
-        catch (Exception e){
+        if (model.redo()) {
+            REDOS.increment();
+            positionChanged();
+        } else if (DEBUG) {
             Logger.debug("No more moves to redo");
         }
     }
 
+    /**
+     * Plays the moves of the game again from the start, including the undone ones
+     */
+    public void onReplay(ActionEvent actionEvent) {
+        if (replayer != null) {
+            replayer.close();
+        }
+        var replay = Replay.of(model);
+        showHint(HintService.NO_HINT);
+        var player = new ReplayPlayer(replay, model, Platform::runLater);
+        player.setDelay(REPLAY_DELAY);
+        player.seek(0).thenRun(() -> player.play().thenRun(this::positionChanged));
+        replayer = player;
+        Logger.info("Replaying {} moves", replay.length());
+    }
+
+    /**
+     * Highlights the next move of a shortest solution, as soon as the background search has found it
+     */
+    public void onHint(ActionEvent actionEvent) {
+        HINTS.increment();
+        var position = model.getPosition();
+        long requested = model.getSnapshot();
+        hints.hint(position).thenAcceptAsync(move -> {
+            // the position may have changed while the hint was computed
+            if (model.getSnapshot() == requested) {
+                showHint(move);
+            }
+        }, Platform::runLater).exceptionally(e -> {
+            // a hint of an older position is cancelled when a new one is requested
+            if (!(e instanceof CancellationException) && !(e.getCause() instanceof CancellationException)) {
+                Logger.warn(e, "Error computing the hint");
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Removes the highlighted hint, starts computing the hint of the new position and autosaves it
+     */
+    private void positionChanged() {
+        showHint(HintService.NO_HINT);
+        hints.precompute(model.getPosition());
+        saves.autosave(model, AUTOSAVE_FILE);
+    }
+
+    /**
+     * Highlights the squares of a move, replacing the previous highlight
+     * @param move the move, or NO_HINT to only remove the highlight
+     */
+    private void showHint(int move) {
+        if (canvas != null) {
+            canvas.setHint(move);
+        } else {
+            if (shownHint != HintService.NO_HINT) {
+                squares[Moves.from(shownHint)].getStyleClass().remove("hint");
+                squares[Moves.to(shownHint)].getStyleClass().remove("hint");
+            }
+            if (move != HintService.NO_HINT) {
+                squares[Moves.from(move)].getStyleClass().add("hint");
+                squares[Moves.to(move)].getStyleClass().add("hint");
+            }
+        }
+        shownHint = move;
+        if (DEBUG && move != HintService.NO_HINT) {
+            Logger.debug("Hint: {}", Moves.toString(move, model.getSize()));
+        }
+    }
+
     /**
      * Opens a link to the github repository
      */
@@ -343,6 +702,8 @@ public class GameController {
         // if the user clicks no, then the game closes
         else {
             Logger.debug("Exiting game");
+            // System.exit skips the stop of the application, so write the autosave of the winning move here
+            shutdown();
             System.exit(0);
         }
     }
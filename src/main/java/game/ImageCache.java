@@ -0,0 +1,111 @@
+package game;
+
+import game.metrics.Histogram;
+import game.metrics.Metrics;
+import game.model.SquareStates;
+import javafx.scene.image.Image;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decodes the piece images once and shares them between every square.
+ * The images can be preloaded in the background at startup; a square asking for an image that is
+ * not decoded yet decodes it itself. The {@code image.hits} counter and the {@code image.decode} histogram
+ * of the {@link Metrics} show how often the images were reused and how long decoding took, so the redraw
+ * cost can be checked to stay flat as moves pile up.
+ */
+public final class ImageCache {
+
+    private static final AtomicReferenceArray<Image> IMAGES = new AtomicReferenceArray<>(SquareStates.values().length);
+
+    private static final LongAdder HITS = Metrics.counter("image.hits");
+    private static final Histogram DECODE = Metrics.histogram("image.decode");
+
+    private ImageCache() {
+    }
+
+    /**
+     * Gets the image of what stands on a square.
+     * @param state the state of the square
+     * @return the shared image, or {@code null} for an empty square
+     */
+    public static Image get(SquareStates state) {
+        if (state == SquareStates.NONE) {
+            return null;
+        }
+        var image = IMAGES.get(state.ordinal());
+        if (image != null) {
+            HITS.increment();
+            return image;
+        }
+        return decode(state);
+    }
+
+    /**
+     * Decodes every image that is not decoded yet on the calling thread.
+     */
+    public static void preload() {
+        for (var state : SquareStates.values()) {
+            if (state != SquareStates.NONE && IMAGES.get(state.ordinal()) == null) {
+                decode(state);
+            }
+        }
+    }
+
+    /**
+     * Starts decoding the images on a background daemon thread.
+     */
+    public static void preloadAsync() {
+        var thread = new Thread(ImageCache::preload, "image-preloader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static Image decode(SquareStates state) {
+        long start = System.nanoTime();
+        var resource = switch (state) {
+            case KNIGHT -> "/knight.png";
+            case KING -> "/king.png";
+            case GOAL -> "/goal.png";
+            case NONE -> throw new IllegalArgumentException("No image for empty squares");
+        };
+        Image image;
+        try (var in = ImageCache.class.getResourceAsStream(resource)) {
+            image = new Image(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long nanos = System.nanoTime() - start;
+        if (!IMAGES.compareAndSet(state.ordinal(), null, image)) {
+            return IMAGES.get(state.ordinal());
+        }
+        DECODE.record(nanos);
+        Logger.debug("Decoded {} in {} us", resource, nanos / 1000);
+        return image;
+    }
+
+    /**
+     * Gets how many times a decoded image was reused.
+     */
+    public static long hits() {
+        return HITS.sum();
+    }
+
+    /**
+     * Gets how many images were decoded.
+     */
+    public static long decodes() {
+        return DECODE.count();
+    }
+
+    /**
+     * Gets the total time spent decoding images, in nanoseconds.
+     */
+    public static long decodeNanos() {
+        return DECODE.sum();
+    }
+}
@@ -1,9 +1,22 @@
 package game;
 
+import game.cli.Cli;
 import javafx.application.Application;
 
 public class Main {
+    /**
+     * Runs a command of the headless {@link Cli} if the first argument names one, otherwise opens the game window.
+     * JavaFX is only touched in the second case, so the commands start without loading it.
+     */
     public static void main(String[] args) {
-        Application.launch(GameApplication.class,args);
+        if (args.length > 0 && Cli.isCommand(args[0])) {
+            System.exit(new Cli(System.out, System.err).run(args));
+        }
+        launch(args);
+    }
+
+    private static void launch(String[] args) {
+        Startup.begin();
+        Application.launch(GameApplication.class, args);
     }
 }
@@ -1,10 +1,11 @@
 package game;
 
+import game.model.Moves;
 import game.model.SquareStates;
 
 /**
  * This class is used to keep track of the moves made by the pieces.
- * It is used to undo and redo moves.
+ * It is the JSON form of the moves of a {@link game.model.MoveJournal} in save files.
  */
 public class MoveTracker {
     private int currentRow;
@@ -49,4 +50,23 @@ public class MoveTracker {
     public int getPrevCol() {
         return prevCol;
     }
+
+    /**
+     * Creates a tracker from a move
+     * @param move the move, encoded by {@link Moves}
+     * @param size the size of the board
+     */
+    public static MoveTracker fromMove(int move, int size) {
+        return new MoveTracker(Moves.to(move) / size, Moves.to(move) % size, Moves.piece(move),
+                Moves.from(move) / size, Moves.from(move) % size);
+    }
+
+    /**
+     * Encodes the tracked move
+     * @param size the size of the board
+     * @return the move, encoded by {@link Moves}
+     */
+    public int toMove(int size) {
+        return Moves.encode(prevPiece, prevRow * size + prevCol, currentRow * size + currentCol);
+    }
 }
@@ -0,0 +1,112 @@
+package game;
+
+import game.metrics.Metrics;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import org.tinylog.Logger;
+
+import java.util.List;
+
+/**
+ * Measures the cold start of the game window and prepares in the background what its first frame needs.
+ *
+ * <p>The time to the first frame runs from the start of the JVM, as reported by the operating system, to the
+ * layout of the first pulse of the scene, the last step before it is rendered. It is recorded in the
+ * {@code startup.first-frame} histogram and logged. With {@code -Dgame.startup.exit=true} the game prints it to
+ * stdout as {@code first-frame-ms <millis>} and exits, which is how the {@code startup} command of the
+ * {@link game.cli.Cli} and the class data archive training run of the {@code appcds} Maven profile use it.
+ */
+public final class Startup {
+
+    /**
+     * The system property making the game exit after its first frame.
+     */
+    public static final String EXIT_PROPERTY = "game.startup.exit";
+
+    /**
+     * Starts the line printed on stdout after the first frame when exiting.
+     */
+    public static final String FIRST_FRAME_PREFIX = "first-frame-ms ";
+
+    /**
+     * The classes behind the first frame that do not need the JavaFX toolkit to be loaded,
+     * beyond the ones every JavaFX application loads while the toolkit starts.
+     */
+    private static final List<String> CLASSES = List.of(
+            "javafx.fxml.FXMLLoader",
+            "javafx.scene.control.MenuBar",
+            "javafx.scene.control.RadioMenuItem",
+            "javafx.scene.control.skin.MenuBarSkin",
+            "javafx.scene.layout.GridPane",
+            "javafx.scene.layout.StackPane",
+            "javafx.scene.image.ImageView",
+            "game.GameController",
+            "game.model.GameModel",
+            "game.solver.HintService",
+            "game.solver.PuzzleCatalog",
+            "game.io.SaveService");
+
+    private static long mainNanos;
+
+    private Startup() {
+    }
+
+    /**
+     * Notes the start of {@code main} and loads the classes of the first frame on a daemon thread,
+     * while the JavaFX toolkit starts on the others.
+     */
+    static void begin() {
+        mainNanos = System.nanoTime();
+        var thread = new Thread(() -> {
+            var loader = Startup.class.getClassLoader();
+            for (var name : CLASSES) {
+                try {
+                    // loaded and linked but not initialized, as some of them need the toolkit for that
+                    Class.forName(name, false, loader);
+                } catch (ClassNotFoundException | LinkageError e) {
+                    Logger.debug("Could not preload {}: {}", name, e);
+                }
+            }
+        }, "class-preloader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Records the time to the first frame of a scene once it is laid out.
+     * @param scene the scene of the window being shown
+     */
+    static void measureFirstFrame(Scene scene) {
+        Runnable listener = new Runnable() {
+            private boolean measured;
+
+            @Override
+            public void run() {
+                if (measured) {
+                    return;
+                }
+                measured = true;
+                // the scene walks its listeners while this runs, so remove it after the pulse
+                Platform.runLater(() -> scene.removePostLayoutPulseListener(this));
+                firstFrame();
+            }
+        };
+        scene.addPostLayoutPulseListener(listener);
+    }
+
+    private static void firstFrame() {
+        long now = System.currentTimeMillis();
+        long sinceMain = (System.nanoTime() - mainNanos) / 1_000_000;
+        long millis = ProcessHandle.current().info().startInstant()
+                .map(start -> now - start.toEpochMilli())
+                .orElse(sinceMain);
+        // looked up here rather than in a constant, as the metrics start flight recorder support
+        Metrics.histogram("startup.first-frame").record(millis * 1_000_000);
+        Logger.info("First frame {} ms after the start of the JVM, {} ms after main", millis, sinceMain);
+        if (Boolean.getBoolean(EXIT_PROPERTY)) {
+            System.out.println(FIRST_FRAME_PREFIX + millis);
+            System.out.flush();
+            Platform.exit();
+        }
+    }
+}
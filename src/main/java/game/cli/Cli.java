@@ -0,0 +1,509 @@
+package game.cli;
+
+import game.Main;
+import game.Startup;
+import game.io.SaveFormat;
+import game.io.SaveStore;
+import game.model.GameModel;
+import game.model.Moves;
+import game.model.Position;
+import game.replay.Replay;
+import game.server.GameServer;
+import game.solver.BatchSolver;
+import game.solver.PuzzleCatalog;
+import game.solver.PuzzleGenerator;
+import game.solver.Solver;
+import game.solver.Tablebase;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The headless command-line interface, which works on the rules, the solver and the saves
+ * without starting JavaFX.
+ *
+ * <pre>
+ * solve [--size N] [--threads N] [file]     solves the positions of a file (or stdin), one per line
+ * generate [--size N] [--seed S] [--count N] [--length L] [--tablebase file]
+ *                                           prints random solvable starts in the format of solve,
+ *                                           caching the tablebase in the given file
+ * verify-save [--size N] file               checks that a save decodes and its moves are legal
+ * bench [--size N] [--iterations N]         times the tablebase, the generator and the solver
+ * slots store [list | delete name | import name file | export name file | compact]
+ *                                           manages the named saves of a {@link SaveStore}
+ * replay [--size N] [--store file] [--seek N] [file...]
+ *                                           replays saves headlessly, checking every move
+ * serve [--port N] [--idle-minutes N] [--max-sessions N]
+ *                                           hosts puzzle sessions over HTTP, see {@link GameServer}
+ * catalog [--size N] file                   builds the {@link PuzzleCatalog} file unless it exists and prints its statistics
+ * startup [--runs N] [--archive file]       times the first frame of the game window in fresh JVMs
+ * </pre>
+ *
+ * Positions are written as six integers: king row and column, knight row and column, goal row and column.
+ */
+public final class Cli {
+
+    /**
+     * The exit code of a successful command.
+     */
+    public static final int OK = 0;
+
+    /**
+     * The exit code of a command whose input failed a check.
+     */
+    public static final int FAILED = 1;
+
+    /**
+     * The exit code of a malformed command line.
+     */
+    public static final int USAGE = 2;
+
+    private static final List<String> COMMANDS = List.of("solve", "generate", "verify-save", "bench", "slots", "replay", "serve", "catalog", "startup", "help");
+
+    private static final String USAGE_TEXT = """
+            Usage: java -jar game.jar <command> [options]
+              solve [--size N] [--threads N] [file]
+              generate [--size N] [--seed S] [--count N] [--length L] [--tablebase file]
+              verify-save [--size N] file
+              bench [--size N] [--iterations N]
+              slots store [list | delete name | import name file | export name file | compact]
+              replay [--size N] [--store file] [--seek N] [file...]
+              serve [--port N] [--idle-minutes N] [--max-sessions N]
+              catalog [--size N] file
+              startup [--runs N] [--archive file]
+              help
+            Without a command the game window opens.""";
+
+    static {
+        // Results go to stdout for piping, so the log must not; system properties are read when tinylog
+        // starts and, unlike its Configuration class, cost nothing to set
+        System.getProperties().putIfAbsent("tinylog.writer", "console");
+        System.getProperties().putIfAbsent("tinylog.writer.stream", "err");
+    }
+
+    private final PrintStream out;
+    private final PrintStream err;
+
+    /**
+     * Creates an interface printing to the given streams.
+     * @param out receives the results
+     * @param err receives the errors and the statistics
+     */
+    public Cli(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * Tells whether a command-line argument names a command of the interface.
+     * @param arg the first argument of the program
+     */
+    public static boolean isCommand(String arg) {
+        return COMMANDS.contains(arg);
+    }
+
+    /**
+     * Runs a command.
+     * @param args the command followed by its options and operands
+     * @return the exit code of the command
+     */
+    public int run(String... args) {
+        if (args.length == 0 || !isCommand(args[0])) {
+            err.println(USAGE_TEXT);
+            return USAGE;
+        }
+        try {
+            var options = Options.parse(args);
+            return switch (args[0]) {
+                case "solve" -> solve(options);
+                case "generate" -> generate(options);
+                case "verify-save" -> verifySave(options);
+                case "bench" -> bench(options);
+                case "slots" -> slots(options);
+                case "replay" -> replay(options);
+                case "serve" -> serve(options);
+                case "catalog" -> catalog(options);
+                case "startup" -> startup(options);
+                default -> {
+                    out.println(USAGE_TEXT);
+                    yield OK;
+                }
+            };
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(USAGE_TEXT);
+            return USAGE;
+        } catch (IOException e) {
+            err.println("I/O error: " + e.getMessage());
+            return FAILED;
+        }
+    }
+
+    private int solve(Options options) throws IOException {
+        int size = options.size();
+        int threads = options.intValue("threads", Runtime.getRuntime().availableProcessors());
+        var solver = new BatchSolver(size, threads);
+        BatchSolver.Stats stats;
+        if (options.operands.isEmpty()) {
+            var in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            stats = solver.solve(in, out::println);
+        } else {
+            stats = solver.solve(Path.of(options.operand(0)), out::println);
+        }
+        out.flush();
+        err.println(stats);
+        return OK;
+    }
+
+    private int generate(Options options) throws IOException {
+        int size = options.size();
+        long seed = options.longValue("seed", System.nanoTime());
+        var tablebaseFile = options.values.get("tablebase");
+        var generator = tablebaseFile != null && size <= PuzzleGenerator.TABLEBASE_MAX_SIZE
+                ? new PuzzleGenerator(Tablebase.loadOrGenerate(Path.of(tablebaseFile), size), seed)
+                : PuzzleGenerator.forSize(size, seed);
+        int count = options.intValue("count", 1);
+        int length = options.intValue("length", 0);
+        var position = new Position(size);
+        var line = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (length > 0) {
+                generator.next(length, position);
+            } else {
+                generator.next(position);
+            }
+            line.setLength(0);
+            appendSquare(line, position, position.king()).append(' ');
+            appendSquare(line, position, position.knight()).append(' ');
+            appendSquare(line, position, position.goal());
+            out.println(line);
+        }
+        return OK;
+    }
+
+    private static StringBuilder appendSquare(StringBuilder line, Position position, int square) {
+        return line.append(position.row(square)).append(' ').append(position.col(square));
+    }
+
+    /**
+     * Decodes a save, walks its journal back to the first position and replays every recorded move,
+     * checking that each one is legal and that the replay ends on the saved position.
+     */
+    private int verifySave(Options options) throws IOException {
+        var saved = SaveFormat.load(Path.of(options.operand(0)), options.size());
+        var current = saved.position();
+        var journal = saved.journal();
+        int size = current.size();
+        var position = new Position(size);
+        position.copyFrom(current);
+        for (int i = journal.ply() - 1; i >= 0; i--) {
+            int move = journal.get(i);
+            if (position.get(Moves.piece(move)) != Moves.to(move)) {
+                err.println("Move " + (i + 1) + " (" + Moves.toString(move, size) + ") does not lead to the saved position");
+                return FAILED;
+            }
+            position.set(Moves.piece(move), Moves.from(move));
+        }
+        var start = Position.fromPacked(position.pack());
+        for (int i = 0; i < journal.length(); i++) {
+            if (i == journal.ply() && !position.equals(current)) {
+                err.println("The played moves do not lead to the saved position");
+                return FAILED;
+            }
+            int move = journal.get(i);
+            if (position.get(Moves.piece(move)) != Moves.from(move) || !position.isLegal(Moves.piece(move), Moves.to(move))) {
+                err.println("Move " + (i + 1) + " (" + Moves.toString(move, size) + ") is illegal");
+                return FAILED;
+            }
+            position.move(Moves.piece(move), Moves.to(move));
+        }
+        var solution = new Solver(size).solve(current);
+        out.println("board:    " + size + "x" + size);
+        out.println("start:    " + start);
+        out.println("position: " + current);
+        out.println("moves:    " + journal.ply() + " played, " + (journal.length() - journal.ply()) + " undone");
+        out.println("won:      " + current.isWon());
+        out.println("solution: " + (solution.isSolvable() ? solution.length() + " moves" : "none"));
+        return OK;
+    }
+
+    private int bench(Options options) {
+        int size = options.size();
+        if (size > PuzzleGenerator.TABLEBASE_MAX_SIZE) {
+            throw new IllegalArgumentException("bench needs a tablebase, so the size is at most " + PuzzleGenerator.TABLEBASE_MAX_SIZE);
+        }
+        int iterations = options.intValue("iterations", 10_000);
+        long start = System.nanoTime();
+        var tablebase = Tablebase.generate(size);
+        long tablebaseNanos = System.nanoTime() - start;
+
+        var generator = new PuzzleGenerator(tablebase, 1);
+        var positions = new Position[iterations];
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            positions[i] = generator.next();
+        }
+        long generateNanos = System.nanoTime() - start;
+
+        var solver = new Solver(size);
+        long moves = 0;
+        start = System.nanoTime();
+        for (var position : positions) {
+            moves += solver.solve(position).length();
+        }
+        long solveNanos = System.nanoTime() - start;
+
+        out.printf("tablebase: %d states in %.1f ms%n", tablebase.stateCount(), tablebaseNanos / 1e6);
+        out.printf("generate:  %d puzzles, %.0f ns/puzzle%n", iterations, (double) generateNanos / iterations);
+        out.printf("solve:     %d puzzles (%d moves), %.1f us/puzzle%n", iterations, moves, solveNanos / 1e3 / iterations);
+        return OK;
+    }
+
+    private int slots(Options options) throws IOException {
+        try (var store = SaveStore.open(Path.of(options.operand(0)))) {
+            var action = options.operands.size() > 1 ? options.operand(1) : "list";
+            switch (action) {
+                case "list" -> {
+                    store.list().forEach(out::println);
+                    err.println(store.size() + " slots, " + store.fileSize() + " bytes (" + store.liveSize() + " after compaction)");
+                }
+                case "delete" -> {
+                    if (!store.delete(options.operand(2))) {
+                        err.println("No save named " + options.operand(2));
+                        return FAILED;
+                    }
+                }
+                case "import" -> store.put(options.operand(2), SaveFormat.load(Path.of(options.operand(3)), options.size()));
+                case "export" -> {
+                    var saved = store.get(options.operand(2));
+                    if (saved.isEmpty()) {
+                        err.println("No save named " + options.operand(2));
+                        return FAILED;
+                    }
+                    SaveFormat.write(saved.get(), Path.of(options.operand(3)));
+                }
+                case "compact" -> store.compact();
+                default -> throw new IllegalArgumentException("Unknown slots action: " + action);
+            }
+        }
+        return OK;
+    }
+
+    /**
+     * Replays every given save and every slot of the store, printing one line per game:
+     * the name, the number of moves, the first illegal move if any, and the position after
+     * {@code --seek} moves or at the end.
+     */
+    private int replay(Options options) throws IOException {
+        var games = new ArrayList<Map.Entry<String, SaveFormat.Saved>>();
+        for (var file : options.operands) {
+            games.add(Map.entry(file, SaveFormat.load(Path.of(file), options.size())));
+        }
+        var storeFile = options.values.get("store");
+        if (storeFile != null) {
+            try (var store = SaveStore.open(Path.of(storeFile))) {
+                for (var name : store.list()) {
+                    games.add(Map.entry(name, store.get(name).orElseThrow()));
+                }
+            }
+        }
+        int seek = options.intValue("seek", -1);
+        int failed = 0;
+        long moves = 0;
+        long start = System.nanoTime();
+        for (var game : games) {
+            var saved = game.getValue();
+            Replay replay;
+            try {
+                replay = Replay.of(saved.position(), saved.journal());
+            } catch (IllegalArgumentException e) {
+                out.println(game.getKey() + "\tinvalid: " + e.getMessage());
+                failed++;
+                continue;
+            }
+            int illegal = replay.firstIllegalMove();
+            int ply = seek < 0 ? replay.length() : Math.min(seek, replay.length());
+            var position = Position.fromPacked(replay.packedAt(ply));
+            out.println(game.getKey() + "\t" + replay.length() + " moves\t"
+                    + (illegal == Replay.LEGAL ? "legal" : "illegal move " + (illegal + 1))
+                    + "\t" + (position.isWon() ? "won" : "not won") + " at " + ply + "\t" + position);
+            if (illegal != Replay.LEGAL) {
+                failed++;
+            }
+            moves += replay.length();
+        }
+        long nanos = System.nanoTime() - start;
+        err.printf("%d games, %d moves, %d failed in %.1f ms%n", games.size(), moves, failed, nanos / 1e6);
+        return failed == 0 ? OK : FAILED;
+    }
+
+    private int catalog(Options options) throws IOException {
+        int size = options.size();
+        if (size > PuzzleGenerator.TABLEBASE_MAX_SIZE) {
+            throw new IllegalArgumentException("catalog needs a tablebase, so the size is at most " + PuzzleGenerator.TABLEBASE_MAX_SIZE);
+        }
+        long start = System.nanoTime();
+        var catalog = PuzzleCatalog.loadOrBuild(Path.of(options.operand(0)), size);
+        out.print(catalog.stats());
+        err.printf("loaded in %.1f ms%n", (System.nanoTime() - start) / 1e6);
+        return OK;
+    }
+
+    /**
+     * Starts the game window in fresh JVMs that exit after their first frame, from the class path of this one,
+     * and prints the times to the first frame: with the default class data archive of the JDK and, if given,
+     * with an application archive such as the one of the {@code appcds} Maven profile.
+     * An untimed run first fills the file cache, so every timed run starts a cold JVM from warm files.
+     */
+    private int startup(Options options) throws IOException {
+        int runs = options.intValue("runs", 10);
+        if (runs < 1) {
+            throw new IllegalArgumentException("--runs must be positive");
+        }
+        var java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        var command = new ArrayList<>(List.of(java, "-D" + Startup.EXIT_PROPERTY + "=true",
+                "-cp", System.getProperty("java.class.path"), Main.class.getName()));
+        firstFrameMillis(command);
+        printStartup("default", command, runs);
+        var archive = options.values.get("archive");
+        if (archive != null) {
+            if (!Files.isRegularFile(Path.of(archive))) {
+                throw new IOException("No class data archive " + archive);
+            }
+            // fails instead of silently running without the archive if it does not match the class path
+            command.addAll(1, List.of("-XX:SharedArchiveFile=" + archive, "-Xshare:on"));
+            printStartup("archive", command, runs);
+        }
+        return OK;
+    }
+
+    private void printStartup(String name, List<String> command, int runs) throws IOException {
+        var millis = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            millis[i] = firstFrameMillis(command);
+        }
+        Arrays.sort(millis);
+        out.printf("%-8s median %5d ms  min %5d ms  max %5d ms  (%d runs)%n",
+                name, millis[runs / 2], millis[0], millis[runs - 1], runs);
+    }
+
+    /**
+     * Runs the game once and reads the time to its first frame from its output.
+     */
+    private static long firstFrameMillis(List<String> command) throws IOException {
+        var process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String result = null;
+        String last = "";
+        try (var lines = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            for (var line = lines.readLine(); line != null; line = lines.readLine()) {
+                if (line.startsWith(Startup.FIRST_FRAME_PREFIX)) {
+                    result = line.substring(Startup.FIRST_FRAME_PREFIX.length()).trim();
+                } else if (!line.isBlank() && !Character.isWhitespace(line.charAt(0))) {
+                    // the last line that is not a stack frame, usually the error
+                    last = line;
+                }
+            }
+            if (!process.waitFor(1, TimeUnit.MINUTES)) {
+                throw new IOException("The game did not exit");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the game", e);
+        } finally {
+            process.destroy();
+        }
+        if (result == null) {
+            throw new IOException("The game exited with code " + process.exitValue() + " before its first frame: " + last);
+        }
+        return Long.parseLong(result);
+    }
+
+    /**
+     * Runs the game server until the process is stopped.
+     */
+    private int serve(Options options) throws IOException {
+        var server = new GameServer(options.intValue("port", 8080), Duration.ofMinutes(options.longValue("idle-minutes", 30)),
+                options.intValue("max-sessions", GameServer.DEFAULT_MAX_SESSIONS));
+        err.println("Serving on http://localhost:" + server.port() + "/sessions");
+        try {
+            new CountDownLatch(1).await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            server.close();
+        }
+        return OK;
+    }
+
+    /**
+     * The {@code --name value} options and the operands of a command.
+     */
+    private static final class Options {
+
+        private final Map<String, String> values = new HashMap<>();
+        private final List<String> operands = new ArrayList<>();
+
+        static Options parse(String[] args) {
+            var options = new Options();
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].startsWith("--")) {
+                    if (i + 1 == args.length) {
+                        throw new IllegalArgumentException("Missing value of " + args[i]);
+                    }
+                    options.values.put(args[i].substring(2), args[++i]);
+                } else {
+                    options.operands.add(args[i]);
+                }
+            }
+            return options;
+        }
+
+        String operand(int index) {
+            if (index >= operands.size()) {
+                throw new IllegalArgumentException("Missing operand");
+            }
+            return operands.get(index);
+        }
+
+        int size() {
+            int size = intValue("size", GameModel.DEFAULT_SIZE);
+            if (size < 3 || size > GameModel.MAX_SIZE) {
+                throw new IllegalArgumentException("Board size must be between 3 and " + GameModel.MAX_SIZE);
+            }
+            return size;
+        }
+
+        int intValue(String name, int defaultValue) {
+            long value = longValue(name, defaultValue);
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("--" + name + " is out of range: " + value);
+            }
+            return (int) value;
+        }
+
+        long longValue(String name, long defaultValue) {
+            var value = values.get(name);
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("--" + name + " expects a number: " + value);
+            }
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package game.io;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import game.MoveTracker;
+import game.model.GameModel;
+import game.model.MoveJournal;
+import game.model.Moves;
+import game.model.Position;
+import game.model.SquareStates;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes saved games.
+ *
+ * <p>The binary format starts with the magic {@code KHSV}, a version byte and the board size byte,
+ * followed by the {@link Position#pack() packed} current position (8 bytes, big-endian), the number
+ * of recorded moves and the number of played moves as varints, and then every move of the journal
+ * as a varint of {@code (from * squares + to) * 2 + piece}, where piece is 0 for the king and 1 for
+ * the knight. Files are written and read through NIO channels with a fixed-size buffer, and written
+ * to a temporary file that is then renamed over the save.
+ *
+ * <p>Files that do not start with the magic are imported as the JSON saves of earlier versions.
+ */
+public final class SaveFormat {
+
+    private static final int MAGIC = 0x4B485356;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private SaveFormat() {
+    }
+
+    /**
+     * Writes the position and the journal of a model to a file.
+     * @param model the model to save
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(GameModel model, Path path) throws IOException {
+        write(snapshot(model), path);
+    }
+
+    /**
+     * Writes a snapshot to a file. The snapshot is written to a temporary file of the same directory
+     * first and then renamed over the file, so a crash never leaves a half-written save behind.
+     * @param saved the snapshot to save
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Saved saved, Path path) throws IOException {
+        var directory = path.toAbsolutePath().getParent();
+        var temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (var channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                write(saved, channel);
+                channel.force(false);
+            }
+            try {
+                Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Writes the position and the journal of a model to a channel.
+     * @param model the model to save
+     * @param channel the channel to write to
+     * @throws IOException if the channel cannot be written
+     */
+    public static void write(GameModel model, WritableByteChannel channel) throws IOException {
+        write(snapshot(model), channel);
+    }
+
+    /**
+     * Writes a snapshot to a channel.
+     * @param saved the snapshot to save
+     * @param channel the channel to write to
+     * @throws IOException if the channel cannot be written
+     */
+    public static void write(Saved saved, WritableByteChannel channel) throws IOException {
+        var position = saved.position();
+        var journal = saved.journal();
+        int squares = position.squareCount();
+        var buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        buffer.putInt(MAGIC).put((byte) VERSION).put((byte) position.size()).putLong(position.pack());
+        putVarint(buffer, journal.length());
+        putVarint(buffer, journal.ply());
+        for (int i = 0; i < journal.length(); i++) {
+            if (buffer.remaining() < 5) {
+                drain(buffer, channel);
+            }
+            int move = journal.get(i);
+            int piece = Moves.piece(move) == SquareStates.KING ? 0 : 1;
+            putVarint(buffer, (Moves.from(move) * squares + Moves.to(move)) * 2 + piece);
+        }
+        drain(buffer, channel);
+    }
+
+    /**
+     * The decoded content of a save.
+     * @param position the current position
+     * @param journal the recorded moves and the number of played moves
+     */
+    public record Saved(Position position, MoveJournal journal) {
+    }
+
+    /**
+     * Copies the position and the journal of a model, so they can be written while the model changes.
+     * @param model the model to copy
+     */
+    public static Saved snapshot(GameModel model) {
+        var journal = new MoveJournal(model.getJournal().length());
+        journal.copyFrom(model.getJournal());
+        return new Saved(Position.fromPacked(model.getSnapshot()), journal);
+    }
+
+    /**
+     * Loads a saved game into a model, importing JSON saves of earlier versions.
+     * @param path the file to read
+     * @param model the model receiving the position and the journal
+     * @throws IOException if the file cannot be read, is malformed or has another board size
+     */
+    public static void read(Path path, GameModel model) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            read(channel, model);
+        }
+    }
+
+    /**
+     * Loads a saved game from a channel into a model, importing JSON saves of earlier versions.
+     * @param channel the channel to read from
+     * @param model the model receiving the position and the journal
+     * @throws IOException if the channel cannot be read, is malformed or has another board size
+     */
+    public static void read(ReadableByteChannel channel, GameModel model) throws IOException {
+        var saved = load(channel, model.getSize());
+        int size = saved.position().size();
+        if (size != model.getSize()) {
+            throw new IOException("The save is for a " + size + "x" + size + " board, not " + model.getSize() + "x" + model.getSize());
+        }
+        model.restore(saved.position(), saved.journal());
+    }
+
+    /**
+     * Decodes a saved game without a model.
+     * @param path the file to read
+     * @param legacySize the board size of JSON saves, which do not record it
+     * @return the position and the journal of the save
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static Saved load(Path path, int legacySize) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return load(channel, legacySize);
+        }
+    }
+
+    /**
+     * Decodes a saved game from a channel without a model.
+     * @param channel the channel to read from
+     * @param legacySize the board size of JSON saves, which do not record it
+     * @return the position and the journal of the save
+     * @throws IOException if the channel cannot be read or is malformed
+     */
+    public static Saved load(ReadableByteChannel channel, int legacySize) throws IOException {
+        var in = new Input(channel);
+        if (!in.startsWith(MAGIC)) {
+            return importJson(in, legacySize);
+        }
+        in.skip(4);
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported save version: " + version);
+        }
+        int size = in.readByte();
+        if (size < 3 || size > GameModel.MAX_SIZE) {
+            throw new IOException("Corrupt save: board size " + size);
+        }
+        int squares = size * size;
+        long packed = in.readLong();
+        if (Position.packedSize(packed) != size) {
+            throw new IOException("Corrupt save: the position is not of a " + size + "x" + size + " board");
+        }
+        var position = Position.fromPacked(packed);
+        if (position.king() >= squares || position.knight() >= squares || position.goal() >= squares) {
+            throw new IOException("Corrupt save: a piece is off the board");
+        }
+        int length = in.readVarint();
+        int ply = in.readVarint();
+        if (length < 0 || ply < 0 || ply > length) {
+            throw new IOException("Corrupt save: ply " + ply + " of " + length + " moves");
+        }
+        // every move takes at least a byte, so a length beyond the bytes left is corrupt rather than allocated
+        if (length > in.available()) {
+            throw new IOException("Corrupt save: " + length + " moves in " + in.available() + " bytes");
+        }
+        var journal = new MoveJournal(Math.min(length, BUFFER_SIZE), Math.max(length, 1));
+        for (int i = 0; i < length; i++) {
+            int code = in.readVarint();
+            var piece = (code & 1) == 0 ? SquareStates.KING : SquareStates.KNIGHT;
+            int fromTo = code >>> 1;
+            if (fromTo >= squares * squares) {
+                throw new IOException("Corrupt save: move " + i + " is off the board");
+            }
+            journal.record(Moves.encode(piece, fromTo / squares, fromTo % squares));
+        }
+        journal.setPly(ply);
+        return new Saved(position, journal);
+    }
+
+    /**
+     * Imports the JSON save of earlier versions: an array of the positions, the JSON of the moves
+     * that can be undone and the JSON of the moves that can be redone, with the next one last.
+     */
+    private static Saved importJson(Input in, int size) throws IOException {
+        ArrayList<Object> load = OBJECT_MAPPER.readValue(Channels.newInputStream(in.remaining()),
+                new TypeReference<ArrayList<Object>>() {});
+        if (load.size() < 3 || !(load.get(0) instanceof List<?> squares) || squares.size() < 6
+                || !(load.get(1) instanceof String undoJson) || !(load.get(2) instanceof String redoJson)) {
+            throw new IOException("Not a saved game");
+        }
+        var rowCols = new int[6];
+        for (int i = 0; i < rowCols.length; i++) {
+            if (!(squares.get(i) instanceof Integer value) || value < 0 || value >= size) {
+                throw new IOException("Corrupt save: a piece is off the board");
+            }
+            rowCols[i] = value;
+        }
+        var position = new Position(size, rowCols[0] * size + rowCols[1],
+                rowCols[2] * size + rowCols[3], rowCols[4] * size + rowCols[5]);
+        ArrayList<MoveTracker> undoTracker = OBJECT_MAPPER.readValue(undoJson, new TypeReference<ArrayList<MoveTracker>>() {});
+        ArrayList<MoveTracker> redoTracker = OBJECT_MAPPER.readValue(redoJson, new TypeReference<ArrayList<MoveTracker>>() {});
+        var journal = new MoveJournal(undoTracker.size() + redoTracker.size());
+        for (var move : undoTracker) {
+            journal.record(importMove(move, size));
+        }
+        for (int i = redoTracker.size() - 1; i >= 0; i--) {
+            journal.record(importMove(redoTracker.get(i), size));
+        }
+        journal.setPly(undoTracker.size());
+        return new Saved(position, journal);
+    }
+
+    private static int importMove(MoveTracker move, int size) throws IOException {
+        var piece = move.getPrevPiece();
+        if (piece != SquareStates.KING && piece != SquareStates.KNIGHT) {
+            throw new IOException("Corrupt save: a move of " + piece);
+        }
+        for (int value : new int[]{move.getPrevRow(), move.getPrevCol(), move.getCurrentRow(), move.getCurrentCol()}) {
+            if (value < 0 || value >= size) {
+                throw new IOException("Corrupt save: a move is off the board");
+            }
+        }
+        return move.toMove(size);
+    }
+
+    private static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static void drain(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Reads a channel through a fixed-size buffer.
+     */
+    private static final class Input {
+
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+        private boolean eof;
+
+        Input(ReadableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Makes at least the given number of bytes available, unless the channel ends.
+         */
+        private boolean fill(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return true;
+            }
+            buffer.compact();
+            while (!eof && buffer.position() < bytes) {
+                eof = channel.read(buffer) < 0;
+            }
+            buffer.flip();
+            return buffer.remaining() >= bytes;
+        }
+
+        boolean startsWith(int magic) throws IOException {
+            return fill(4) && buffer.getInt(buffer.position()) == magic;
+        }
+
+        void skip(int bytes) throws IOException {
+            require(bytes);
+            buffer.position(buffer.position() + bytes);
+        }
+
+        int readByte() throws IOException {
+            require(1);
+            return buffer.get() & 0xFF;
+        }
+
+        long readLong() throws IOException {
+            require(8);
+            return buffer.getLong();
+        }
+
+        int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Corrupt save: varint too long");
+        }
+
+        /**
+         * Gets the number of unread bytes, or {@link Long#MAX_VALUE} if the channel does not tell its size.
+         */
+        long available() throws IOException {
+            if (channel instanceof SeekableByteChannel seekable) {
+                return buffer.remaining() + Math.max(seekable.size() - seekable.position(), 0);
+            }
+            return eof ? buffer.remaining() : Long.MAX_VALUE;
+        }
+
+        private void require(int bytes) throws IOException {
+            if (!fill(bytes)) {
+                throw new EOFException("Unexpected end of save");
+            }
+        }
+
+        /**
+         * Gets a channel of the unread bytes, starting with the buffered ones.
+         */
+        ReadableByteChannel remaining() {
+            return new ReadableByteChannel() {
+                @Override
+                public int read(ByteBuffer dst) throws IOException {
+                    if (buffer.hasRemaining()) {
+                        int n = Math.min(dst.remaining(), buffer.remaining());
+                        dst.put(buffer.slice(buffer.position(), n));
+                        buffer.position(buffer.position() + n);
+                        return n;
+                    }
+                    return eof ? -1 : channel.read(dst);
+                }
+
+                @Override
+                public boolean isOpen() {
+                    return channel.isOpen();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    channel.close();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package game.io;
+
+import game.model.GameModel;
+import game.model.MoveJournal;
+import game.model.Position;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Saves and loads games on a background I/O thread, so a slow disk never stalls the caller.
+ * The model is only touched on the calling thread: saves take a {@link SaveFormat#snapshot snapshot}
+ * before handing it to the I/O thread, and loaded games are applied to the model on the executor
+ * given to the constructor, such as the JavaFX application thread, with one {@link GameModel#restore} call.
+ *
+ * <p>Autosaves are coalesced: a snapshot taken while an earlier one is still being written replaces
+ * any snapshot waiting behind it, so only the newest position is written and moves are never queued up.
+ * They also do not copy the whole journal on every move: the service keeps its own copy of the moves,
+ * updates only the ones recorded since the last autosave, and hands the I/O thread a prefix of it that
+ * is never written again, so the journal of the save is built on the I/O thread.
+ */
+public final class SaveService implements AutoCloseable {
+
+    private final Executor modelExecutor;
+    private final ExecutorService io;
+
+    /**
+     * The slot stores opened so far, used on the I/O thread only.
+     */
+    private final Map<Path, SaveStore> stores = new HashMap<>();
+
+    /**
+     * The newest autosave snapshot that has not been written yet, with its file.
+     */
+    private final AtomicReference<Pending> pendingAutosave = new AtomicReference<>();
+
+    private record Pending(long position, int[] moves, int length, int ply, Path path) {
+    }
+
+    /**
+     * The model of the last autosave and its moves, updated on the calling thread only.
+     */
+    private GameModel autosaved;
+    private int[] autosaveMoves = new int[16];
+    private int autosaveLength;
+    private long autosaveRecorded;
+    private long autosaveForgotten;
+
+    /**
+     * The number of moves at the start of {@link #autosaveMoves} that the I/O thread may still be reading,
+     * which are copied to a new array rather than overwritten.
+     */
+    private int autosaveShared;
+
+    /**
+     * Creates a service.
+     * @param modelExecutor runs the updates of the model, such as {@code Platform::runLater}
+     */
+    public SaveService(Executor modelExecutor) {
+        this.modelExecutor = modelExecutor;
+        this.io = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "save-io");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Saves a game in the background.
+     * @param model the model to save, copied on the calling thread
+     * @param path the file to write
+     * @return a future completed when the file is written, or completed exceptionally with the I/O error
+     */
+    public CompletableFuture<Void> save(GameModel model, Path path) {
+        var saved = SaveFormat.snapshot(model);
+        return CompletableFuture.runAsync(() -> {
+            try {
+                SaveFormat.write(saved, path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, io);
+    }
+
+    /**
+     * Loads a game in the background and applies it to a model on the model executor.
+     * @param path the file to read
+     * @param model the model receiving the game, which is left unchanged if loading fails
+     * @return a future completed after the model is updated, or completed exceptionally with the I/O error
+     */
+    public CompletableFuture<Void> load(Path path, GameModel model) {
+        int size = model.getSize();
+        return loadAndApply(() -> SaveFormat.load(path, size), model);
+    }
+
+    /**
+     * Saves a game into a slot of a {@link SaveStore} in the background, opening the store on first use.
+     * @param store the file of the store
+     * @param name the name of the slot
+     * @param model the model to save, copied on the calling thread
+     * @return a future completed when the slot is written
+     */
+    public CompletableFuture<Void> saveSlot(Path store, String name, GameModel model) {
+        var saved = SaveFormat.snapshot(model);
+        return CompletableFuture.runAsync(() -> {
+            try {
+                store(store).put(name, saved);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, io);
+    }
+
+    /**
+     * Loads the game of a slot in the background and applies it to a model on the model executor.
+     * @param store the file of the store
+     * @param name the name of the slot
+     * @param model the model receiving the game, which is left unchanged if loading fails
+     * @return a future completed after the model is updated
+     */
+    public CompletableFuture<Void> loadSlot(Path store, String name, GameModel model) {
+        return loadAndApply(() -> store(store).get(name).orElseThrow(() -> new IOException("No save named " + name)), model);
+    }
+
+    /**
+     * Lists the slots of a store in the background.
+     * @param store the file of the store
+     * @return a future of the names of the slots
+     */
+    public CompletableFuture<List<String>> listSlots(Path store) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return store(store).list();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, io);
+    }
+
+    /**
+     * Opens a store, or gets it if it is already open. Runs on the I/O thread.
+     */
+    private SaveStore store(Path path) throws IOException {
+        var store = stores.get(path);
+        if (store == null) {
+            store = SaveStore.open(path);
+            stores.put(path, store);
+        }
+        return store;
+    }
+
+    /**
+     * Reads a game on the I/O thread and restores it into a model on the model executor.
+     */
+    private CompletableFuture<Void> loadAndApply(Reader reader, GameModel model) {
+        int size = model.getSize();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                var saved = reader.read();
+                if (saved.position().size() != size) {
+                    throw new IOException("The save is for a " + saved.position().size() + "x" + saved.position().size()
+                            + " board, not " + size + "x" + size);
+                }
+                return saved;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, io).thenAcceptAsync(saved -> model.restore(saved.position(), saved.journal()), modelExecutor);
+    }
+
+    private interface Reader {
+        SaveFormat.Saved read() throws IOException;
+    }
+
+    /**
+     * Snapshots a game for the autosave, written in the background unless a newer snapshot replaces it first.
+     * Only the moves recorded since the last autosave of the same model are copied, unless the journal
+     * forgot some of its oldest moves in between, or moves the I/O thread may be reading were replaced.
+     * @param model the model to save, read on the calling thread
+     * @param path the autosave file
+     */
+    public void autosave(GameModel model, Path path) {
+        var journal = model.getJournal();
+        int length = journal.length();
+        int unchanged = 0;
+        if (model == autosaved && journal.forgotten() == autosaveForgotten) {
+            long changed = journal.recorded() - autosaveRecorded;
+            unchanged = (int) Math.max(0, Math.min(autosaveLength, length - changed));
+        }
+        if (unchanged < autosaveShared || length > autosaveMoves.length) {
+            int capacity = autosaveMoves.length;
+            if (length > capacity) {
+                capacity = Math.max(length, capacity * 2);
+            }
+            var moves = new int[capacity];
+            System.arraycopy(autosaveMoves, 0, moves, 0, unchanged);
+            autosaveMoves = moves;
+            autosaveShared = 0;
+        }
+        for (int i = unchanged; i < length; i++) {
+            autosaveMoves[i] = journal.get(i);
+        }
+        autosaved = model;
+        autosaveLength = length;
+        autosaveRecorded = journal.recorded();
+        autosaveForgotten = journal.forgotten();
+        autosaveShared = Math.max(autosaveShared, length);
+
+        var pending = new Pending(model.getSnapshot(), autosaveMoves, length, journal.ply(), path);
+        if (pendingAutosave.getAndSet(pending) == null) {
+            io.execute(this::writeAutosave);
+        }
+    }
+
+    private void writeAutosave() {
+        var pending = pendingAutosave.getAndSet(null);
+        if (pending == null) {
+            return;
+        }
+        var journal = new MoveJournal(pending.length(), Math.max(pending.length(), 1));
+        for (int i = 0; i < pending.length(); i++) {
+            journal.record(pending.moves()[i]);
+        }
+        journal.setPly(pending.ply());
+        try {
+            SaveFormat.write(new SaveFormat.Saved(Position.fromPacked(pending.position()), journal), pending.path());
+        } catch (IOException e) {
+            Logger.error(e, "Error writing the autosave");
+        }
+    }
+
+    /**
+     * Writes the pending autosave, closes the stores and stops the I/O thread.
+     */
+    @Override
+    public void close() {
+        io.execute(this::writeAutosave);
+        io.execute(() -> {
+            for (var store : stores.values()) {
+                try {
+                    store.close();
+                } catch (IOException e) {
+                    Logger.error(e, "Error closing a save store");
+                }
+            }
+            stores.clear();
+        });
+        io.shutdown();
+        try {
+            if (!io.awaitTermination(5, TimeUnit.SECONDS)) {
+                Logger.warn("Save thread did not finish in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
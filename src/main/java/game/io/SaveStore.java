@@ -0,0 +1,363 @@
+package game.io;
+
+import org.tinylog.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Many named saves in a single append-only file.
+ *
+ * <p>The file starts with the magic {@code KHSS} and a version byte, followed by records of a type byte
+ * (put or delete), the length of the name (2 bytes), the UTF-8 name, the length of the payload (4 bytes),
+ * the payload in the {@link SaveFormat} binary format and a CRC32 of everything before it in the record.
+ * Saving a slot appends a put record and deleting one appends a delete record; nothing is rewritten
+ * until {@link #compact()}.
+ *
+ * <p>Opening the store reads the record headers only, skipping the payloads, and keeps an index of the
+ * offset of every live slot, so listing, loading and deleting a slot never read the other saves.
+ * A record cut short by a crash, which runs past the end of the file with no whole record after it, is
+ * ignored when the store is opened and dropped by the next write or {@link #compact()}; opening never
+ * changes the file. Any other malformed record makes opening fail rather than losing the slots after it.
+ * The methods are synchronized, so a store can be shared by the UI and a background thread.
+ */
+public final class SaveStore implements AutoCloseable {
+
+    private static final int MAGIC = 0x4B485353;
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER = 5;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int MAX_NAME_BYTES = 0xFFFF;
+
+    /**
+     * The location of the record of a live slot.
+     */
+    private record Entry(long offset, int length) {
+    }
+
+    private final Path path;
+    private FileChannel channel;
+
+    /**
+     * The end of the last whole record, where the next record is written.
+     */
+    private long end;
+    private final Map<String, Entry> index = new LinkedHashMap<>();
+    private long liveBytes;
+
+    private SaveStore(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens a store, creating the file if it does not exist.
+     * @param path the file of the store
+     * @throws IOException if the file cannot be read or is not a save store
+     */
+    public static SaveStore open(Path path) throws IOException {
+        var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        var store = new SaveStore(path, channel);
+        try {
+            store.readIndex();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return store;
+    }
+
+    private void readIndex() throws IOException {
+        if (channel.size() == 0) {
+            var header = ByteBuffer.allocate(FILE_HEADER).putInt(MAGIC).put((byte) VERSION).flip();
+            writeFully(header, 0);
+            end = FILE_HEADER;
+            return;
+        }
+        var header = readAt(0, FILE_HEADER);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a save store: " + path);
+        }
+        int version = header.get();
+        if (version != VERSION) {
+            throw new IOException("Unsupported save store version: " + version);
+        }
+        long offset = FILE_HEADER;
+        long size = channel.size();
+        while (offset < size) {
+            long next = readRecordHeader(offset, size);
+            if (next < 0) {
+                // a record cut short by a crash is the last one, so a whole record after it means corruption
+                if (hasRecordAfter(offset, size)) {
+                    throw new IOException("Corrupt record at " + offset + " of " + path);
+                }
+                Logger.warn("Ignoring the incomplete record at {} of {} until the next write", offset, path);
+                break;
+            }
+            offset = next;
+        }
+        end = offset;
+    }
+
+    /**
+     * Looks for a whole record with a matching CRC32 starting anywhere after an offset.
+     */
+    private boolean hasRecordAfter(long offset, long size) throws IOException {
+        var rest = readAt(offset, (int) Math.min(size - offset, Integer.MAX_VALUE - 8));
+        for (int at = 1; at + 3 + 4 + 4 <= rest.limit(); at++) {
+            byte type = rest.get(at);
+            if (type != PUT && type != DELETE) {
+                continue;
+            }
+            int nameLength = Short.toUnsignedInt(rest.getShort(at + 1));
+            if (nameLength == 0 || at + 3 + nameLength + 4 + 4 > rest.limit()) {
+                continue;
+            }
+            int payloadLength = rest.getInt(at + 3 + nameLength);
+            long length = 3L + nameLength + 4 + payloadLength + 4;
+            if (payloadLength < 0 || at + length > rest.limit()) {
+                continue;
+            }
+            var crc = new CRC32();
+            crc.update(rest.slice(at, (int) length - 4));
+            if ((int) crc.getValue() == rest.getInt(at + (int) length - 4)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Indexes the record at an offset.
+     * @return the offset of the next record, or -1 if the record runs past the end of the file
+     * @throws IOException if the record is corrupt
+     */
+    private long readRecordHeader(long offset, long size) throws IOException {
+        if (size - offset < 3) {
+            return -1;
+        }
+        var head = readAt(offset, 3);
+        byte type = head.get();
+        int nameLength = Short.toUnsignedInt(head.getShort());
+        if (size - offset < 3 + nameLength + 4 + 4) {
+            return -1;
+        }
+        var nameAndLength = readAt(offset + 3, nameLength + 4);
+        var nameBytes = new byte[nameLength];
+        nameAndLength.get(nameBytes);
+        int payloadLength = nameAndLength.getInt();
+        if (payloadLength < 0 || (type != PUT && type != DELETE)) {
+            throw new IOException("Corrupt record at " + offset + " of " + path);
+        }
+        long end = offset + 3 + nameLength + 4 + payloadLength + 4;
+        if (end > size) {
+            return -1;
+        }
+        var name = new String(nameBytes, StandardCharsets.UTF_8);
+        if (type == PUT) {
+            putIndex(name, new Entry(offset, (int) (end - offset)));
+        } else {
+            removeIndex(name);
+        }
+        return end;
+    }
+
+    /**
+     * Lists the names of the slots, from the least recently saved.
+     */
+    public synchronized List<String> list() {
+        return new ArrayList<>(index.keySet());
+    }
+
+    public synchronized boolean contains(String name) {
+        return index.containsKey(name);
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Saves a game into a slot, replacing the slot if it exists.
+     * @param name the name of the slot
+     * @param saved the game to save
+     * @throws IOException if the store cannot be written
+     */
+    public synchronized void put(String name, SaveFormat.Saved saved) throws IOException {
+        var payload = new ByteArrayOutputStream();
+        SaveFormat.write(saved, Channels.newChannel(payload));
+        putIndex(name, append(PUT, name, payload.toByteArray()));
+    }
+
+    /**
+     * Loads the game of a slot, reading only that slot.
+     * @param name the name of the slot
+     * @return the game, or an empty optional if there is no such slot
+     * @throws IOException if the slot cannot be read or is corrupt
+     */
+    public synchronized Optional<SaveFormat.Saved> get(String name) throws IOException {
+        var entry = index.get(name);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        var record = readAt(entry.offset(), entry.length());
+        var crc = new CRC32();
+        crc.update(record.slice(0, entry.length() - 4));
+        if ((int) crc.getValue() != record.getInt(entry.length() - 4)) {
+            throw new IOException("Corrupt slot " + name + " in " + path);
+        }
+        int payloadOffset = 3 + Short.toUnsignedInt(record.getShort(1)) + 4;
+        var payload = new byte[entry.length() - payloadOffset - 4];
+        record.get(payloadOffset, payload);
+        // slots are always written in the binary format, so the board size of JSON saves is never used
+        return Optional.of(SaveFormat.load(Channels.newChannel(new ByteArrayInputStream(payload)), 0));
+    }
+
+    /**
+     * Deletes a slot.
+     * @param name the name of the slot
+     * @return false if there was no such slot
+     * @throws IOException if the store cannot be written
+     */
+    public synchronized boolean delete(String name) throws IOException {
+        if (!index.containsKey(name)) {
+            return false;
+        }
+        append(DELETE, name, new byte[0]);
+        removeIndex(name);
+        return true;
+    }
+
+    /**
+     * Gets the size of the file, including the records of replaced and deleted slots.
+     */
+    public synchronized long fileSize() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * Gets the size the file would have after {@link #compact()}.
+     */
+    public synchronized long liveSize() {
+        return FILE_HEADER + liveBytes;
+    }
+
+    /**
+     * Rewrites the file with the live slots only, replacing it atomically where the file system can.
+     * The file is closed while it is replaced, as some systems cannot replace an open file, and opened
+     * again even if replacing it fails, so the store stays usable with the old file.
+     * @throws IOException if the file cannot be rewritten
+     */
+    public synchronized void compact() throws IOException {
+        var directory = path.toAbsolutePath().getParent();
+        var temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (var out = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                out.write(ByteBuffer.allocate(FILE_HEADER).putInt(MAGIC).put((byte) VERSION).flip());
+                for (var entry : index.values()) {
+                    long copied = 0;
+                    while (copied < entry.length()) {
+                        copied += channel.transferTo(entry.offset() + copied, entry.length() - copied, out);
+                    }
+                }
+                out.force(false);
+            }
+            channel.close();
+            try {
+                try {
+                    Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        index.clear();
+        liveBytes = 0;
+        readIndex();
+    }
+
+    /**
+     * Appends a record and forces it to the disk.
+     * @return the location of the record
+     */
+    private Entry append(byte type, String name, byte[] payload) throws IOException {
+        byte[] nameBytes = nameBytes(name);
+        var record = ByteBuffer.allocate(3 + nameBytes.length + 4 + payload.length + 4);
+        record.put(type).putShort((short) nameBytes.length).put(nameBytes).putInt(payload.length).put(payload);
+        var crc = new CRC32();
+        crc.update(record.array(), 0, record.position());
+        record.putInt((int) crc.getValue()).flip();
+        long offset = end;
+        if (channel.size() > offset) {
+            // drops the incomplete record left by a crash before anything is written after it
+            channel.truncate(offset);
+        }
+        writeFully(record, offset);
+        end = offset + record.limit();
+        channel.force(false);
+        return new Entry(offset, record.limit());
+    }
+
+    private static byte[] nameBytes(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (name.isEmpty() || bytes.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Invalid slot name: " + name);
+        }
+        return bytes;
+    }
+
+    private void putIndex(String name, Entry entry) {
+        removeIndex(name);
+        index.put(name, entry);
+        liveBytes += entry.length();
+    }
+
+    private void removeIndex(String name) {
+        var old = index.remove(name);
+        if (old != null) {
+            liveBytes -= old.length();
+        }
+    }
+
+    private ByteBuffer readAt(long offset, int length) throws IOException {
+        var buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + path);
+            }
+        }
+        return buffer.flip();
+    }
+
+    private void writeFully(ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,41 @@
+package game.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A snapshot of one registered metric, emitted by the flight recorder once a second.
+ * For counters only the count is set.
+ */
+@Name("game.Metric")
+@Label("Game Metric")
+@Category("Game")
+@Description("A counter or latency histogram of the game")
+@Period("1 s")
+@StackTrace(false)
+class MetricEvent extends Event {
+
+    @Label("Name")
+    String name;
+
+    @Label("Count")
+    long count;
+
+    @Label("Median")
+    @Timespan(Timespan.NANOSECONDS)
+    long p50;
+
+    @Label("99th Percentile")
+    @Timespan(Timespan.NANOSECONDS)
+    long p99;
+
+    @Label("Maximum")
+    @Timespan(Timespan.NANOSECONDS)
+    long max;
+}
@@ -0,0 +1,107 @@
+package game.metrics;
+
+import jdk.jfr.FlightRecorder;
+import org.tinylog.Logger;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The registry of the gameplay counters and latency {@link Histogram histograms}.
+ * Metrics are created on first use and recording into them is lock-free and allocation-free.
+ *
+ * <p>They can be exported in two ways: while a flight recording runs (for example with
+ * {@code -XX:StartFlightRecording}), every metric is emitted as a {@code game.Metric} JFR event once
+ * a second, and {@link #startDump(Duration)} logs a text table periodically.
+ */
+public final class Metrics {
+
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentSkipListMap<>();
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentSkipListMap<>();
+
+    private static ScheduledExecutorService dumper;
+
+    static {
+        FlightRecorder.addPeriodicEvent(MetricEvent.class, Metrics::emitEvents);
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Gets a counter, creating it on first use.
+     * @param name the name of the counter
+     */
+    public static LongAdder counter(String name) {
+        return COUNTERS.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * Gets a histogram of durations in nanoseconds, creating it on first use.
+     * @param name the name of the histogram
+     */
+    public static Histogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, Histogram::new);
+    }
+
+    /**
+     * Formats every metric as a text table, histograms in microseconds.
+     */
+    public static String dump() {
+        var sb = new StringBuilder();
+        COUNTERS.forEach((name, counter) -> sb.append(String.format("%-24s %10d%n", name, counter.sum())));
+        HISTOGRAMS.forEach((name, histogram) -> sb.append(String.format(
+                "%-24s %10d  mean %9.1f  p50 %9.1f  p99 %9.1f  max %9.1f us%n",
+                name, histogram.count(), histogram.mean() / 1e3, histogram.percentile(0.5) / 1e3,
+                histogram.percentile(0.99) / 1e3, histogram.max() / 1e3)));
+        return sb.toString();
+    }
+
+    /**
+     * Logs the {@link #dump()} periodically on a daemon thread, replacing an earlier schedule.
+     * @param period the time between two dumps
+     */
+    public static synchronized void startDump(Duration period) {
+        stopDump();
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = period.toMillis();
+        dumper.scheduleAtFixedRate(() -> Logger.info("Metrics:\n{}", dump()), millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic dump, if any.
+     */
+    public static synchronized void stopDump() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+    }
+
+    private static void emitEvents() {
+        COUNTERS.forEach((name, counter) -> {
+            var event = new MetricEvent();
+            event.name = name;
+            event.count = counter.sum();
+            event.commit();
+        });
+        HISTOGRAMS.forEach((name, histogram) -> {
+            var event = new MetricEvent();
+            event.name = name;
+            event.count = histogram.count();
+            event.p50 = histogram.percentile(0.5);
+            event.p99 = histogram.percentile(0.99);
+            event.max = histogram.max();
+            event.commit();
+        });
+    }
+}
@@ -0,0 +1,178 @@
+package game.model;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Precomputed king and knight attacks for one board size.
+ * For every square there is a bitset of the attacked squares, so testing an attack is a single
+ * mask lookup, and a list of the target squares in a fixed direction order, so moves can be
+ * generated and reversed without coordinate arithmetic. The tables are built once per size and shared.
+ */
+public final class AttackTables {
+
+    /**
+     * The number of directions of both pieces.
+     */
+    public static final int DIRECTIONS = 8;
+
+    /**
+     * The row offsets of the king, ordered so that direction {@code 7 - d} is the opposite of {@code d}.
+     */
+    private static final int[] KING_DR = {-1, -1, -1, 0, 0, 1, 1, 1};
+    private static final int[] KING_DC = {-1, 0, 1, -1, 1, -1, 0, 1};
+
+    /**
+     * The valid moves of a knight, ordered so that direction {@code 7 - d} is the opposite of {@code d}.
+     */
+    private static final int[] KNIGHT_DR = {-2, -2, -1, -1, 1, 1, 2, 2};
+    private static final int[] KNIGHT_DC = {-1, 1, -2, 2, -2, 2, -1, 1};
+
+    /**
+     * The direction of every row and column offset between -2 and 2, indexed as
+     * {@code (dr + 2) * 5 + dc + 2}, or -1 if no move of the piece has that offset.
+     */
+    private static final int[] KING_DIRECTIONS = directions(KING_DR, KING_DC);
+    private static final int[] KNIGHT_DIRECTIONS = directions(KNIGHT_DR, KNIGHT_DC);
+
+    private static final AtomicReferenceArray<AttackTables> CACHE = new AtomicReferenceArray<>(65);
+
+    private final int size;
+    private final int squares;
+    private final int words;
+
+    private final long[] kingMasks;
+    private final long[] knightMasks;
+    private final int[] kingTargets;
+    private final int[] knightTargets;
+
+    private AttackTables(int size) {
+        this.size = size;
+        this.squares = size * size;
+        this.words = (squares + 63) >>> 6;
+        this.kingMasks = new long[squares * words];
+        this.knightMasks = new long[squares * words];
+        this.kingTargets = new int[squares * DIRECTIONS];
+        this.knightTargets = new int[squares * DIRECTIONS];
+        for (int square = 0; square < squares; square++) {
+            fill(square, KING_DR, KING_DC, kingMasks, kingTargets);
+            fill(square, KNIGHT_DR, KNIGHT_DC, knightMasks, knightTargets);
+        }
+    }
+
+    /**
+     * Gets the tables of a board size, building them on first use.
+     * @param size the size of the board, between 1 and 64
+     */
+    public static AttackTables forSize(int size) {
+        var tables = CACHE.get(size);
+        if (tables == null) {
+            tables = new AttackTables(size);
+            if (!CACHE.compareAndSet(size, null, tables)) {
+                tables = CACHE.get(size);
+            }
+        }
+        return tables;
+    }
+
+    private static int[] directions(int[] dr, int[] dc) {
+        int[] directions = new int[25];
+        Arrays.fill(directions, -1);
+        for (int d = 0; d < DIRECTIONS; d++) {
+            directions[(dr[d] + 2) * 5 + dc[d] + 2] = d;
+        }
+        return directions;
+    }
+
+    private void fill(int square, int[] dr, int[] dc, long[] masks, int[] targets) {
+        int row = square / size;
+        int col = square % size;
+        for (int d = 0; d < DIRECTIONS; d++) {
+            int r = row + dr[d];
+            int c = col + dc[d];
+            if (r < 0 || c < 0 || r >= size || c >= size) {
+                targets[square * DIRECTIONS + d] = -1;
+                continue;
+            }
+            int target = r * size + c;
+            targets[square * DIRECTIONS + d] = target;
+            masks[square * words + (target >>> 6)] |= 1L << target;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the direction opposite to a direction.
+     */
+    public static int opposite(int direction) {
+        return DIRECTIONS - 1 - direction;
+    }
+
+    /**
+     * Checks if a king on {@code from} attacks the square {@code to}.
+     */
+    public boolean kingAttacks(int from, int to) {
+        return (kingMasks[from * words + (to >>> 6)] >>> to & 1L) != 0;
+    }
+
+    /**
+     * Checks if a knight on {@code from} attacks the square {@code to}.
+     */
+    public boolean knightAttacks(int from, int to) {
+        return (knightMasks[from * words + (to >>> 6)] >>> to & 1L) != 0;
+    }
+
+    /**
+     * Gets the square a king reaches from a square in a direction, or -1 if it leaves the board.
+     */
+    public int kingTarget(int square, int direction) {
+        return kingTargets[square * DIRECTIONS + direction];
+    }
+
+    /**
+     * Gets the square a knight reaches from a square in a direction, or -1 if it leaves the board.
+     */
+    public int knightTarget(int square, int direction) {
+        return knightTargets[square * DIRECTIONS + direction];
+    }
+
+    /**
+     * Gets the square a piece reaches from a square in a direction, or -1 if it leaves the board.
+     * @param piece the king or the knight
+     */
+    public int target(SquareStates piece, int square, int direction) {
+        return piece == SquareStates.KING ? kingTarget(square, direction) : knightTarget(square, direction);
+    }
+
+    /**
+     * Gets the direction in which a piece moves from one square to another.
+     * @param piece the king or the knight
+     * @return the direction, or -1 if the piece cannot make that move
+     */
+    public int direction(SquareStates piece, int from, int to) {
+        int dr = to / size - from / size;
+        int dc = to % size - from % size;
+        if (dr < -2 || dr > 2 || dc < -2 || dc > 2) {
+            return -1;
+        }
+        var directions = piece == SquareStates.KING ? KING_DIRECTIONS : KNIGHT_DIRECTIONS;
+        return directions[(dr + 2) * 5 + dc + 2];
+    }
+
+    /**
+     * Gets the bitset of the squares attacked by a king, for boards of at most 64 squares.
+     */
+    public long kingMask(int square) {
+        return kingMasks[square * words];
+    }
+
+    /**
+     * Gets the bitset of the squares attacked by a knight, for boards of at most 64 squares.
+     */
+    public long knightMask(int square) {
+        return knightMasks[square * words];
+    }
+}
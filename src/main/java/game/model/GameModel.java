@@ -1,88 +1,196 @@
 package game.model;
 
-import javafx.beans.Observable;
+import javafx.beans.property.ReadOnlyLongProperty;
+import javafx.beans.property.ReadOnlyLongWrapper;
 import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Observable adapter over a headless {@link Position}.
+ * The rules and the piece squares live in the position; the JavaFX properties of the squares
+ * are only created when someone asks for them, so headless use never allocates them.
+ * Operations changing several squares publish their changes together, see {@link #update(Runnable)}.
+ */
 public class GameModel {
 
     /**
-     * The size of the board.
+     * The size of the board of the original puzzle.
      */
-    public static int SIZE = 8;
+    public static final int DEFAULT_SIZE = 8;
+
+    /**
+     * The largest supported board size.
+     */
+    public static final int MAX_SIZE = 64;
+
+    /**
+     * The things that can be placed on the board.
+     */
+    private static final SquareStates[] PLACEABLE = {SquareStates.KING, SquareStates.KNIGHT, SquareStates.GOAL};
+    private static final int[] NO_SQUARES = new int[0];
+
+    /**
+     * The headless state of the game.
+     */
+    private final Position position;
+
+    /**
+     * The observable squares of the board, created lazily by {@link #squareProperty(int, int)}.
+     */
+    private ReadOnlyObjectWrapper<SquareStates>[] board;
+
     /**
-     * The valid moves of a knight.
+     * The packed position, created lazily by {@link #positionProperty()}.
      */
+    private ReadOnlyLongWrapper packedPosition;
 
-    private static final int[][] VALID_MOVES = {{-2,-1},{-2,1},{-1,-2},{-1,2},{1,-2},{1,2},{2,-1},{2,1}};
+    /**
+     * The packed position as of the last completed operation, for readers on other threads.
+     */
+    private volatile long snapshot;
 
-    private int kingRow;
-    private int kingCol;
+    /**
+     * The moves played since the position was last set.
+     */
+    private final MoveJournal journal;
 
-    private int knightRow;
-    private int knightCol;
+    /**
+     * The keys of the board size and the key of the current position, updated by every placement.
+     */
+    private final Zobrist zobrist;
+    private long zobristKey;
 
-    private int goalRow;
-    private int goalCol;
+    /**
+     * The keys of the positions before the current one in the played moves, and the key of the first of them,
+     * updated by every move, undo and redo so that repetitions are counted without walking the journal.
+     */
+    private final KeyCounts earlierKeys = new KeyCounts();
+    private long firstKey;
 
     /**
-     * The board of the game.
+     * The depth of nested {@link #update(Runnable)} calls, and the changes they have not published yet.
      */
-    private ReadOnlyObjectWrapper<SquareStates>[][] board = new ReadOnlyObjectWrapper[SIZE][SIZE];
+    private int updateDepth;
+    private int[] changedSquares = new int[8];
+    private int changedCount;
+    private boolean positionChanged;
+
     public GameModel() {
-        initializeBoard();
+        this(DEFAULT_SIZE);
     }
 
     /**
-     * Initializes the board.
+     * Creates a model with a board of any size.
+     * @param size the number of rows and columns, between 3 and {@link #MAX_SIZE}
      */
-    private void initializeBoard(){
-        for (var i = 0; i < SIZE; i++) {
-            for (var j = 0; j < SIZE; j++) {
-                board[i][j] = new ReadOnlyObjectWrapper<SquareStates>(SquareStates.NONE);
-            }
+    public GameModel(int size) {
+        this(size, MoveJournal.DEFAULT_LIMIT);
+    }
+
+    /**
+     * Creates a model with a board of any size and a bounded journal.
+     * @param size the number of rows and columns, between 3 and {@link #MAX_SIZE}
+     * @param journalLimit the number of moves the journal keeps before forgetting the oldest
+     */
+    public GameModel(int size, int journalLimit) {
+        if (size < 3 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Board size must be between 3 and " + MAX_SIZE + ": " + size);
         }
+        journal = new MoveJournal(16, journalLimit);
+        position = new Position(size);
+        zobrist = Zobrist.forSize(size);
+        initializeBoard();
+    }
 
-        setKing(5,1);
-        board[kingRow][kingCol] = new ReadOnlyObjectWrapper<SquareStates>(SquareStates.KING);
+    /**
+     * Initializes the board. On the default board this is the starting position of the original puzzle.
+     */
+    private void initializeBoard(){
+        int size = position.size();
+        setKing(size - 3,1);
+        setKnight(size - 3,2);
+        setGoal(size - 1,size - 2);
+    }
 
-        setKnight(5,2);
-        board[knightRow][knightCol] = new ReadOnlyObjectWrapper<SquareStates>(SquareStates.KNIGHT);
+    /**
+     * Gets the size of the board.
+     */
+    public int getSize() {
+        return position.size();
+    }
 
-        setGoal(7,6);
-        board[goalRow][goalCol] = new ReadOnlyObjectWrapper<SquareStates>(SquareStates.GOAL);
+    /**
+     * Gets the headless position behind this model. It must not be modified directly
+     * while the square properties are observed.
+     */
+    public Position getPosition() {
+        return position;
     }
 
+    @SuppressWarnings("unchecked")
     public ReadOnlyObjectProperty<SquareStates> squareProperty(int i, int j) {
-        return board[i][j].getReadOnlyProperty();
+        if (board == null) {
+            board = new ReadOnlyObjectWrapper[position.squareCount()];
+        }
+        int square = position.square(i, j);
+        if (board[square] == null) {
+            board[square] = new ReadOnlyObjectWrapper<>(position.stateAt(square));
+        }
+        return board[square].getReadOnlyProperty();
+    }
+
+    /**
+     * Gets the {@link Position#pack() packed} position as of the last completed operation.
+     * Unlike the other methods this one can be called from any thread: the value is published through
+     * a volatile field when an operation, or the outermost {@link #update(Runnable)}, ends, so a reader
+     * never sees a half-updated board and needs no lock. {@link Position#fromPacked(long)} turns it
+     * back into a position.
+     */
+    public long getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Gets a property holding the {@link Position#pack() packed} position, which changes whenever
+     * any square changes. Renderers can compare two values to find the changed squares.
+     */
+    public ReadOnlyLongProperty positionProperty() {
+        if (packedPosition == null) {
+            packedPosition = new ReadOnlyLongWrapper(position.pack());
+        }
+        return packedPosition.getReadOnlyProperty();
     }
 
     public SquareStates getSquareState(int i, int j){
-        return board[i][j].get();
+        return position.stateAt(position.square(i, j));
     }
-    public void setKing(Integer row, Integer col){
-        kingRow = row;
-        kingCol = col;
+    public void setKing(int row, int col){
+        place(SquareStates.KING, position.square(row, col));
     }
-    public void setKnight(Integer row, Integer col){
-        knightRow = row;
-        knightCol = col;
+    public void setKnight(int row, int col){
+        place(SquareStates.KNIGHT, position.square(row, col));
     }
 
-    public void setGoal(Integer row, Integer col){
-        goalRow = row;
-        goalCol = col;
+    public void setGoal(int row, int col){
+        place(SquareStates.GOAL, position.square(row, col));
     }
 
     public void clearBoard(){
-        for (var i = 0; i < SIZE; i++) {
-            for (var j = 0; j < SIZE; j++) {
-                board[i][j].set(SquareStates.NONE);
-            }
-        }
+        int king = position.king();
+        int knight = position.knight();
+        int goal = position.goal();
+        position.clear();
+        zobristKey = 0;
+        update(() -> {
+            refresh(king);
+            refresh(knight);
+            refresh(goal);
+            publishPosition();
+        });
     }
 
     /**
@@ -90,42 +198,32 @@ public class GameModel {
      * @param piece the piece we want to get the row of
      */
     public int getRow(SquareStates piece){
-        switch (piece){
-            case KING -> {
-                return kingRow;
-            }
-            case KNIGHT -> {
-                return knightRow;
-            }
-            case GOAL -> {
-                return goalRow;
-            }
-        }
-        return -1;
+        return position.row(position.get(piece));
     }
 
     /**
      * Gets the column of a piece
      * @param piece the piece we want to get the column of
-     * @return
      */
     public int getCol(SquareStates piece){
-        switch (piece){
-            case KING -> {
-                return kingCol;
-            }
-            case KNIGHT -> {
-                return knightCol;
-            }
-            case GOAL -> {
-                return goalCol;
-            }
-        }
-        return -1;
+        return position.col(position.get(piece));
     }
 
+    /**
+     * Sets the state of a square. Placing a piece moves it from its previous square,
+     * and {@link SquareStates#NONE} removes whatever stands on the square.
+     */
     public void setBoard(int x,int y, SquareStates state) {
-        board[x][y].set(state);
+        int square = position.square(x, y);
+        if (state != SquareStates.NONE) {
+            place(state, square);
+            return;
+        }
+        for (var piece : PLACEABLE) {
+            if (position.get(piece) == square) {
+                place(piece, Position.NO_SQUARE);
+            }
+        }
     }
 
     /**
@@ -134,29 +232,8 @@ public class GameModel {
      * @param col the column we want to move to
      * @param selectedPiece the piece we want to move
      */
-    public boolean canMovePiece(Integer row,Integer col,SquareStates selectedPiece) {
-        switch (selectedPiece){
-            case KING -> {
-                if ((row == kingRow && col == kingCol) || Math.abs(row - kingRow) > 1 || Math.abs(col - kingCol) > 1) {
-                    return false;
-                }
-                return true;
-            }
-            case KNIGHT -> {
-                if ((row == knightRow && col == knightCol) || row < 0 || col < 0 || row >= SIZE || col >= SIZE) {
-                    return false;
-                }
-                for (int i = 0; i < VALID_MOVES.length; i++) {
-                    int newRow = knightRow + VALID_MOVES[i][0];
-                    int newCol = knightCol + VALID_MOVES[i][1];
-                    if (newRow == row && newCol == col) {
-                        return true;
-                    }
-                }
-                return false;
-            }
-        }
-        return false;
+    public boolean canMovePiece(int row,int col,SquareStates selectedPiece) {
+        return position.isOnBoard(row, col) && position.canMove(selectedPiece, position.square(row, col));
     }
 
     /**
@@ -164,79 +241,318 @@ public class GameModel {
      * @param selectedPiece the piece we want to check if it is in check
      */
     public boolean isInCheck(SquareStates selectedPiece) {
-        switch (selectedPiece){
-            case KING -> {
-                // Check if king is in check by the knight
-                for (int i = 0; i < VALID_MOVES.length; i++) {
-                    int newRow = kingRow + VALID_MOVES[i][0];
-                    int newCol = kingCol + VALID_MOVES[i][1];
-                    if (newRow == knightRow && newCol == knightCol) {
-                        return true;
-                    }
-                }
-                return false;
-            }
-            case KNIGHT -> {
-                // Check if knight is in check by the king
-                if (Math.abs(kingRow - knightRow) <= 1 && Math.abs(kingCol - knightCol) <= 1) {
-                    return true;
-                }
-                return false;
-            }
-        }
-        return false;
+        return position.isInCheck(selectedPiece);
+    }
+
+    /**
+     * Gets the piece that has to move in the current position.
+     * @return the piece in check, or {@link SquareStates#NONE} if neither piece can move
+     */
+    public SquareStates getMover() {
+        return position.mover();
     }
 
     /**
-     * Moves a piece to a new position
+     * Writes the legal moves of the current position into a buffer, encoded by {@link Moves}.
+     * @param moves the buffer, with room for at least {@link Position#MAX_MOVES} moves
+     * @return the number of moves written
+     */
+    public int getLegalMoves(int[] moves) {
+        return position.generateMoves(moves);
+    }
+
+    /**
+     * Moves a piece to a new position, in one update
      * @param row the row we want to move to
      * @param col the column we want to move to
      * @param currentSquare the square we want to move to
      */
-    public void move(Integer row, Integer col,SquareStates currentSquare) {
+    public void move(int row, int col,SquareStates currentSquare) {
+        if (currentSquare == SquareStates.KING || currentSquare == SquareStates.KNIGHT) {
+            int from = position.get(currentSquare);
+            int to = position.square(row, col);
+            beginUpdate();
+            try {
+                if (from >= 0) {
+                    record(Moves.encode(currentSquare, from, to));
+                }
+                place(currentSquare, to);
+            } finally {
+                endUpdate();
+            }
+        }
+        // Invalid move - do nothing
+    }
+
+    /**
+     * Records a move about to be played, counting the current position as an earlier one,
+     * and uncounting the first position if the journal forgets its oldest move.
+     */
+    private void record(int move) {
+        if (journal.ply() == 0) {
+            firstKey = zobristKey;
+        }
+        long forgotten = journal.forgotten();
+        int oldest = journal.length() > 0 ? journal.get(0) : 0;
+        journal.record(move);
+        earlierKeys.increment(zobristKey);
+        if (journal.forgotten() != forgotten) {
+            earlierKeys.decrement(firstKey);
+            firstKey ^= zobrist.moveKey(oldest);
+        }
+    }
+
+    /**
+     * Gets the journal of the moves played since the position was last set, or the newest of them
+     * if there were more than its limit.
+     */
+    public MoveJournal getJournal() {
+        return journal;
+    }
 
+    /**
+     * Takes back the last played move, in one update
+     * @return false if there was no move to undo
+     */
+    public boolean undo() {
+        if (!journal.canUndo()) {
+            return false;
+        }
+        beginUpdate();
+        try {
+            int move = journal.undo();
+            place(Moves.piece(move), Moves.from(move));
+            earlierKeys.decrement(zobristKey);
+        } finally {
+            endUpdate();
+        }
+        return true;
+    }
 
-        switch (currentSquare) {
-            case KING -> {
-                // Move king to new position
-                board[row][col].set(SquareStates.KING);
-                // Clear old position
-                board[kingRow][kingCol].set(SquareStates.NONE);
-                // Update king's position
-                setKing(row,col);
-            }
-            case KNIGHT -> {
-                // Move knight to new position
-                board[row][col].set(SquareStates.KNIGHT);
-                // Clear old position
-                board[knightRow][knightCol].set(SquareStates.NONE);
-                // Update knight's position
-                setKnight(row,col);
+    /**
+     * Plays the last undone move again, in one update
+     * @return false if there was no move to redo
+     */
+    public boolean redo() {
+        if (!journal.canRedo()) {
+            return false;
+        }
+        beginUpdate();
+        try {
+            int move = journal.redo();
+            earlierKeys.increment(zobristKey);
+            place(Moves.piece(move), Moves.to(move));
+        } finally {
+            endUpdate();
+        }
+        return true;
+    }
+
+    /**
+     * Undoes or redoes moves until the given number of moves are played, in one update, so the listeners
+     * only see the position reached. It takes time proportional to the number of moves between the two plies;
+     * a replay jumps from its nearest snapshot instead.
+     * @param ply the number of played moves, between 0 and the length of the journal
+     */
+    public void seek(int ply) {
+        if (ply < 0 || ply > journal.length()) {
+            throw new IndexOutOfBoundsException(ply);
+        }
+        update(() -> {
+            while (journal.ply() > ply) {
+                undo();
             }
-            default -> {
+            while (journal.ply() < ply) {
+                redo();
             }
-            // Invalid move - do nothing
+        });
+    }
+
+    /**
+     * Gets the {@link Zobrist} key of the current position, which is kept up to date incrementally.
+     */
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * Counts how many times the current position occurred earlier in the played moves,
+     * for example because a piece went back and forth. The keys of the earlier positions are
+     * counted as the moves are played, undone and redone, so this is a single lookup.
+     * @return the number of earlier occurrences, 0 if the position is new
+     */
+    public int getRepetitions() {
+        return earlierKeys.get(zobristKey);
+    }
+
+    /**
+     * Counts the keys of the positions before the current one by walking the journal backwards,
+     * after the journal was replaced.
+     */
+    private void countEarlierKeys() {
+        earlierKeys.clear();
+        long key = zobristKey;
+        for (int i = journal.ply() - 1; i >= 0; i--) {
+            key ^= zobrist.moveKey(journal.get(i));
+            earlierKeys.increment(key);
         }
+        firstKey = key;
     }
 
     /**
      * Gets the positions of each piece and the goal, and stores them in a list
      */
     public List<Integer> getPositions(){
-        return List.of(kingRow,kingCol,knightRow,knightCol,goalRow,goalCol);
+        return List.of(getRow(SquareStates.KING),getCol(SquareStates.KING),
+                getRow(SquareStates.KNIGHT),getCol(SquareStates.KNIGHT),
+                getRow(SquareStates.GOAL),getCol(SquareStates.GOAL));
     }
     /**
-     * Sets the positions of each piece and the goal
+     * Sets the positions of each piece and the goal, and clears the journal
      * @param readValue the list of positions we want to set
      */
     public void setPositions(ArrayList<Integer> readValue) {
-        clearBoard();
-        setKing(readValue.get(0), readValue.get(1));
-        setBoard(kingRow,kingCol,SquareStates.KING);
-        setKnight(readValue.get(2), readValue.get(3));
-        setBoard(knightRow,knightCol,SquareStates.KNIGHT);
-        setGoal(readValue.get(4), readValue.get(5));
-        setBoard(goalRow,goalCol,SquareStates.GOAL);
+        update(() -> {
+            journal.clear();
+            earlierKeys.clear();
+            clearBoard();
+            setKing(readValue.get(0), readValue.get(1));
+            setKnight(readValue.get(2), readValue.get(3));
+            setGoal(readValue.get(4), readValue.get(5));
+        });
+    }
+
+    /**
+     * Sets every square to the ones of a headless position and clears the journal.
+     * @param other a position of the same board size
+     */
+    public void setPosition(Position other) {
+        update(() -> {
+            journal.clear();
+            earlierKeys.clear();
+            clearBoard();
+            place(SquareStates.KING, other.king());
+            place(SquareStates.KNIGHT, other.knight());
+            place(SquareStates.GOAL, other.goal());
+        });
+    }
+
+    /**
+     * Replaces the position and the journal in one update, such as when a saved game is loaded.
+     * Only the squares that change are refreshed and the position is published once.
+     * @param other a position of the same board size
+     * @param moves the journal to copy
+     */
+    public void restore(Position other, MoveJournal moves) {
+        int king = position.king();
+        int knight = position.knight();
+        int goal = position.goal();
+        position.copyFrom(other);
+        journal.copyFrom(moves);
+        zobristKey = zobrist.key(position);
+        countEarlierKeys();
+        update(() -> {
+            for (int square : new int[]{king, knight, goal, position.king(), position.knight(), position.goal()}) {
+                refresh(square);
+            }
+            publishPosition();
+        });
+    }
+
+    /**
+     * Applies several changes as one. The properties of the changed squares and the position property
+     * are published when the outermost update ends, each at most once, so listeners never see a
+     * half-updated board and a square that changes back is not published at all. Updates can be nested.
+     * @param changes the changes, made through the other methods of the model
+     */
+    public void update(Runnable changes) {
+        beginUpdate();
+        try {
+            changes.run();
+        } finally {
+            endUpdate();
+        }
+    }
+
+    /**
+     * Starts an update without a lambda, for the operations on the path of every move, which must not allocate.
+     * Always paired with {@link #endUpdate()} in a {@code finally} block.
+     */
+    private void beginUpdate() {
+        updateDepth++;
+    }
+
+    private void endUpdate() {
+        if (--updateDepth == 0) {
+            publishChanges();
+        }
+    }
+
+    /**
+     * Publishes the changes collected by the ended update, the position first, so the listeners of a square
+     * already see the new position. A listener may start another update, so the collected squares are copied first.
+     */
+    private void publishChanges() {
+        var squares = changedCount == 0 ? NO_SQUARES : Arrays.copyOf(changedSquares, changedCount);
+        boolean publish = positionChanged;
+        changedCount = 0;
+        positionChanged = false;
+        if (publish) {
+            publishPosition();
+        }
+        for (int square : squares) {
+            refresh(square);
+        }
+    }
+
+    /**
+     * Moves a piece (or the goal) to a square and updates the properties of the affected squares.
+     */
+    private void place(SquareStates piece, int square) {
+        int previous = position.get(piece);
+        position.set(piece, square);
+        zobristKey ^= zobrist.key(piece, previous) ^ zobrist.key(piece, square);
+        refresh(square);
+        refresh(previous);
+        publishPosition();
+    }
+
+    /**
+     * Publishes the state of a square to its property, if that property has been created,
+     * or remembers the square until the running update ends.
+     */
+    private void refresh(int square) {
+        if (board == null || square < 0 || board[square] == null) {
+            return;
+        }
+        if (updateDepth > 0) {
+            for (int i = 0; i < changedCount; i++) {
+                if (changedSquares[i] == square) {
+                    return;
+                }
+            }
+            if (changedCount == changedSquares.length) {
+                changedSquares = Arrays.copyOf(changedSquares, changedCount * 2);
+            }
+            changedSquares[changedCount++] = square;
+            return;
+        }
+        board[square].set(position.stateAt(square));
+    }
+
+    /**
+     * Publishes the packed position to the snapshot and to its property, if that property has been created,
+     * or remembers the change until the running update ends.
+     */
+    private void publishPosition() {
+        if (updateDepth > 0) {
+            positionChanged = true;
+            return;
+        }
+        snapshot = position.pack();
+        if (packedPosition != null) {
+            packedPosition.set(snapshot);
+        }
     }
 
     /**
@@ -244,9 +560,9 @@ public class GameModel {
      */
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        for (var i = 0; i < SIZE; i++) {
-            for (var j = 0; j < SIZE; j++) {
-                sb.append(board[i][j].get().ordinal()).append(' ');
+        for (var i = 0; i < getSize(); i++) {
+            for (var j = 0; j < getSize(); j++) {
+                sb.append(getSquareState(i, j).ordinal()).append(' ');
             }
             sb.append('\n');
         }
@@ -0,0 +1,121 @@
+package game.model;
+
+import java.util.Arrays;
+
+/**
+ * Counts {@link Zobrist} keys in an open-addressing hash table with linear probing, so counting
+ * a key allocates nothing unless the table grows. A slot is empty while its count is zero, and
+ * removing a key shifts the keys probed after it back, so no tombstones are left behind.
+ */
+final class KeyCounts {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Gets how many times a key was counted.
+     */
+    int get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); counts[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return counts[slot];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Counts a key once more.
+     */
+    void increment(long key) {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (counts[slot] != 0) {
+            if (keys[slot] == key) {
+                counts[slot]++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        counts[slot] = 1;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    /**
+     * Counts a key once less, forgetting it at zero.
+     * @throws IllegalStateException if the key was not counted
+     */
+    void decrement(long key) {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (counts[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (counts[slot] == 0) {
+            throw new IllegalStateException("Key not counted: " + key);
+        }
+        if (--counts[slot] == 0) {
+            size--;
+            shiftBack(slot, mask);
+        }
+    }
+
+    /**
+     * Fills an emptied slot with the following keys of its probe run that may live there.
+     */
+    private void shiftBack(int empty, int mask) {
+        for (int slot = (empty + 1) & mask; counts[slot] != 0; slot = (slot + 1) & mask) {
+            int home = slot(keys[slot], mask);
+            // the key may move if the empty slot lies between its home slot and its slot
+            if (((slot - home) & mask) >= ((slot - empty) & mask)) {
+                keys[empty] = keys[slot];
+                counts[empty] = counts[slot];
+                counts[slot] = 0;
+                empty = slot;
+            }
+        }
+    }
+
+    /**
+     * Forgets every key, going back to a small table if a long game grew it.
+     */
+    void clear() {
+        if (keys.length > INITIAL_CAPACITY) {
+            keys = new long[INITIAL_CAPACITY];
+            counts = new int[INITIAL_CAPACITY];
+        } else {
+            Arrays.fill(counts, 0);
+        }
+        size = 0;
+    }
+
+    private void grow() {
+        var oldKeys = keys;
+        var oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldCounts[i] != 0) {
+                int slot = slot(oldKeys[i], mask);
+                while (counts[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        // Zobrist keys are random already; the multiplication only spreads the high bits into the low ones
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+}
@@ -0,0 +1,236 @@
+package game.model;
+
+import java.util.Arrays;
+
+/**
+ * The move history of a game, stored as packed {@link Moves} in a growable {@code int} array.
+ * The moves before the cursor have been played; the moves from the cursor on have been undone
+ * and can be redone. Recording a move discards the undone moves. Apart from growing the array,
+ * no operation allocates.
+ *
+ * <p>A journal keeps at most {@link #limit()} moves. Once it is full, recording a move forgets the oldest
+ * one, so the array becomes a ring and a game that is played on and on, such as a long-lived server
+ * session, stops growing. Indices always count from the oldest move kept.
+ */
+public final class MoveJournal {
+
+    /**
+     * The number of moves a journal keeps unless another limit is given, 4 MB of moves.
+     */
+    public static final int DEFAULT_LIMIT = 1 << 20;
+
+    private final int limit;
+    private int[] moves;
+
+    /**
+     * The index in the array of the oldest move kept, only moved once the journal is full.
+     */
+    private int head;
+    private int length;
+    private int cursor;
+    private long forgotten;
+    private long recorded;
+
+    public MoveJournal() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty journal keeping up to {@link #DEFAULT_LIMIT} moves, or the given capacity if larger.
+     * @param capacity the number of moves stored before the array grows
+     */
+    public MoveJournal(int capacity) {
+        this(capacity, Math.max(capacity, DEFAULT_LIMIT));
+    }
+
+    /**
+     * Creates an empty journal.
+     * @param capacity the number of moves stored before the array grows
+     * @param limit the number of moves kept before the oldest are forgotten
+     */
+    public MoveJournal(int capacity, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Journal limit must be positive: " + limit);
+        }
+        this.limit = limit;
+        moves = new int[Math.max(Math.min(capacity, limit), 1)];
+    }
+
+    /**
+     * Records a played move, discarding the moves that could have been redone, and forgetting
+     * the oldest move if the journal is full.
+     * @param move the move, encoded by {@link Moves}
+     */
+    public void record(int move) {
+        if (cursor == moves.length) {
+            if (moves.length < limit) {
+                grow(Math.min(moves.length * 2, limit));
+            } else {
+                head = (head + 1) % moves.length;
+                cursor--;
+                forgotten++;
+            }
+        }
+        moves[index(cursor++)] = move;
+        length = cursor;
+        recorded++;
+    }
+
+    /**
+     * Replaces the array with a larger one holding the moves from its start.
+     */
+    private void grow(int capacity) {
+        var grown = new int[capacity];
+        int first = Math.min(length, moves.length - head);
+        System.arraycopy(moves, head, grown, 0, first);
+        System.arraycopy(moves, 0, grown, first, length - first);
+        moves = grown;
+        head = 0;
+    }
+
+    private int index(int i) {
+        int index = head + i;
+        return index < moves.length ? index : index - moves.length;
+    }
+
+    public boolean canUndo() {
+        return cursor > 0;
+    }
+
+    public boolean canRedo() {
+        return cursor < length;
+    }
+
+    /**
+     * Steps back one move.
+     * @return the undone move
+     * @throws IllegalStateException if there is nothing to undo
+     */
+    public int undo() {
+        if (cursor == 0) {
+            throw new IllegalStateException("No move to undo");
+        }
+        return moves[index(--cursor)];
+    }
+
+    /**
+     * Steps forward one move.
+     * @return the redone move
+     * @throws IllegalStateException if there is nothing to redo
+     */
+    public int redo() {
+        if (cursor == length) {
+            throw new IllegalStateException("No move to redo");
+        }
+        return moves[index(cursor++)];
+    }
+
+    /**
+     * Gets the number of played moves, which is the index of the next move to redo.
+     */
+    public int ply() {
+        return cursor;
+    }
+
+    /**
+     * Gets the number of recorded moves, including the undone ones.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Gets the number of moves that fit before the array grows.
+     */
+    public int capacity() {
+        return moves.length;
+    }
+
+    /**
+     * Gets the number of moves kept before the oldest are forgotten.
+     */
+    public int limit() {
+        return limit;
+    }
+
+    /**
+     * Gets the number of moves forgotten because the journal was full.
+     */
+    public long forgotten() {
+        return forgotten;
+    }
+
+    /**
+     * Gets the number of moves recorded so far, counting the ones copied by {@link #copyFrom}. It only grows,
+     * so a reader that saw {@code n} recorded moves and a length of {@code l} knows that the moves before
+     * {@code l - (recorded() - n)} have not changed since, as long as none were forgotten.
+     */
+    public long recorded() {
+        return recorded;
+    }
+
+    /**
+     * Gets a recorded move.
+     * @param index the index of the move, less than {@link #length()}
+     */
+    public int get(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return moves[index(index)];
+    }
+
+    /**
+     * Moves the cursor without playing or undoing anything, for restoring a saved journal.
+     * @param ply the new number of played moves
+     */
+    public void setPly(int ply) {
+        if (ply < 0 || ply > length) {
+            throw new IndexOutOfBoundsException(ply);
+        }
+        cursor = ply;
+    }
+
+    /**
+     * Replaces the moves and the cursor with the ones of another journal. If the other journal holds more
+     * moves than the limit of this one, the oldest are forgotten, or the last undone ones if the cursor
+     * would otherwise be forgotten too.
+     * @param other the journal to copy
+     */
+    public void copyFrom(MoveJournal other) {
+        int count = Math.min(other.length, limit);
+        int first = Math.min(other.length - count, other.cursor);
+        if (moves.length < count) {
+            moves = new int[count];
+        }
+        for (int i = 0; i < count; i++) {
+            moves[i] = other.moves[other.index(first + i)];
+        }
+        head = 0;
+        length = count;
+        cursor = other.cursor - first;
+        forgotten = other.forgotten + first;
+        recorded += count;
+    }
+
+    /**
+     * Removes every move.
+     */
+    public void clear() {
+        head = 0;
+        length = 0;
+        cursor = 0;
+        forgotten = 0;
+    }
+
+    /**
+     * Copies the recorded moves into a new array.
+     */
+    public int[] toArray() {
+        var array = new int[length];
+        int first = Math.min(length, moves.length - head);
+        System.arraycopy(moves, head, array, 0, first);
+        System.arraycopy(moves, 0, array, first, length - first);
+        return array;
+    }
+}
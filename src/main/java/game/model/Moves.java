@@ -0,0 +1,48 @@
+package game.model;
+
+/**
+ * Encodes moves as packed {@code int} values, so move lists can be stored in primitive arrays.
+ * The lowest 12 bits hold the target square, the next 12 bits the source square
+ * and the bits above them the {@link SquareStates#ordinal() ordinal} of the moved piece.
+ */
+public final class Moves {
+
+    private static final int SQUARE_BITS = 12;
+    private static final int SQUARE_MASK = (1 << SQUARE_BITS) - 1;
+    private static final SquareStates[] PIECES = SquareStates.values();
+
+    private Moves() {
+    }
+
+    /**
+     * Encodes a move.
+     * @param piece the moved piece
+     * @param from the square the piece moves from
+     * @param to the square the piece moves to
+     */
+    public static int encode(SquareStates piece, int from, int to) {
+        return piece.ordinal() << 2 * SQUARE_BITS | from << SQUARE_BITS | to;
+    }
+
+    public static SquareStates piece(int move) {
+        return PIECES[move >>> 2 * SQUARE_BITS];
+    }
+
+    public static int from(int move) {
+        return move >>> SQUARE_BITS & SQUARE_MASK;
+    }
+
+    public static int to(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    /**
+     * Formats a move as {@code PIECE (row,col) -> (row,col)}.
+     * @param move the encoded move
+     * @param size the size of the board
+     */
+    public static String toString(int move, int size) {
+        return piece(move) + " (" + from(move) / size + "," + from(move) % size + ") -> ("
+                + to(move) / size + "," + to(move) % size + ")";
+    }
+}
@@ -0,0 +1,373 @@
+package game.model;
+
+import java.util.function.IntConsumer;
+
+/**
+ * A headless, allocation-free representation of a game position.
+ * The king, the knight and the goal are stored as square indices ({@code row * size + col}),
+ * so copying, comparing and moving pieces never touches JavaFX or allocates objects.
+ */
+public final class Position {
+
+    /**
+     * Marks a piece that is not placed on the board.
+     */
+    public static final int NO_SQUARE = -1;
+
+    /**
+     * The most legal moves a position can have: only one piece moves, in at most 8 directions.
+     */
+    public static final int MAX_MOVES = AttackTables.DIRECTIONS;
+
+    private static final int FIELD_BITS = 16;
+    private static final long FIELD_MASK = (1L << FIELD_BITS) - 1;
+
+    private final int size;
+    private final AttackTables attacks;
+
+    private int king = NO_SQUARE;
+    private int knight = NO_SQUARE;
+    private int goal = NO_SQUARE;
+
+    /**
+     * Creates an empty position.
+     * @param size the number of rows (and columns) of the board
+     */
+    public Position(int size) {
+        if (size < 1 || size > 64) {
+            throw new IllegalArgumentException("Board size must be between 1 and 64: " + size);
+        }
+        this.size = size;
+        this.attacks = AttackTables.forSize(size);
+    }
+
+    /**
+     * Creates a position with the given squares.
+     * @param size the number of rows (and columns) of the board
+     * @param king the square of the king
+     * @param knight the square of the knight
+     * @param goal the square of the goal
+     */
+    public Position(int size, int king, int knight, int goal) {
+        this(size);
+        this.king = king;
+        this.knight = knight;
+        this.goal = goal;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the precomputed attacks of the board size.
+     */
+    public AttackTables attacks() {
+        return attacks;
+    }
+
+    public int squareCount() {
+        return size * size;
+    }
+
+    /**
+     * Converts a row and a column to a square index.
+     */
+    public int square(int row, int col) {
+        return row * size + col;
+    }
+
+    public int row(int square) {
+        return square < 0 ? -1 : square / size;
+    }
+
+    public int col(int square) {
+        return square < 0 ? -1 : square % size;
+    }
+
+    /**
+     * Checks if the row and the column are on the board.
+     */
+    public boolean isOnBoard(int row, int col) {
+        return row >= 0 && col >= 0 && row < size && col < size;
+    }
+
+    public int king() {
+        return king;
+    }
+
+    public int knight() {
+        return knight;
+    }
+
+    public int goal() {
+        return goal;
+    }
+
+    /**
+     * Gets the square of a piece, or {@link #NO_SQUARE} if it is not placed.
+     * @param piece the piece we want to get the square of
+     */
+    public int get(SquareStates piece) {
+        return switch (piece) {
+            case KING -> king;
+            case KNIGHT -> knight;
+            case GOAL -> goal;
+            case NONE -> NO_SQUARE;
+        };
+    }
+
+    /**
+     * Places a piece on a square, removing it from its previous square.
+     * @param piece the piece to place
+     * @param square the new square, or {@link #NO_SQUARE} to remove the piece
+     */
+    public void set(SquareStates piece, int square) {
+        switch (piece) {
+            case KING -> king = square;
+            case KNIGHT -> knight = square;
+            case GOAL -> goal = square;
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Removes every piece and the goal from the board.
+     */
+    public void clear() {
+        king = NO_SQUARE;
+        knight = NO_SQUARE;
+        goal = NO_SQUARE;
+    }
+
+    /**
+     * Gets what is shown on a square. A piece standing on the goal hides it.
+     * @param square the square index
+     */
+    public SquareStates stateAt(int square) {
+        if (square == king) {
+            return SquareStates.KING;
+        }
+        if (square == knight) {
+            return SquareStates.KNIGHT;
+        }
+        if (square == goal) {
+            return SquareStates.GOAL;
+        }
+        return SquareStates.NONE;
+    }
+
+    /**
+     * Checks if a piece could move to a square according to its chess move,
+     * ignoring whose turn it is and what stands on the target square.
+     * @param piece the piece we want to move
+     * @param square the square we want to move to
+     */
+    public boolean canMove(SquareStates piece, int square) {
+        return switch (piece) {
+            case KING -> king >= 0 && isKingStep(king, square);
+            case KNIGHT -> knight >= 0 && isKnightJump(knight, square);
+            default -> false;
+        };
+    }
+
+    /**
+     * Checks if a piece is in check, that is attacked by the other piece.
+     * @param piece the piece we want to check
+     */
+    public boolean isInCheck(SquareStates piece) {
+        if (king < 0 || knight < 0) {
+            return false;
+        }
+        return switch (piece) {
+            case KING -> attacks.knightAttacks(knight, king);
+            case KNIGHT -> attacks.kingAttacks(king, knight);
+            default -> false;
+        };
+    }
+
+    /**
+     * Checks if a move is allowed by the rules of the game: the piece is in check,
+     * the target is reachable with its chess move and it is not occupied by the other piece.
+     * @param piece the piece we want to move
+     * @param square the square we want to move to
+     */
+    public boolean isLegal(SquareStates piece, int square) {
+        return isInCheck(piece) && canMove(piece, square) && square != king && square != knight;
+    }
+
+    /**
+     * Gets the piece that has to move, which is the one in check.
+     * The king and the knight can never attack each other at the same time.
+     * @return the king, the knight, or {@link SquareStates#NONE} if neither is in check
+     */
+    public SquareStates mover() {
+        if (isInCheck(SquareStates.KING)) {
+            return SquareStates.KING;
+        }
+        if (isInCheck(SquareStates.KNIGHT)) {
+            return SquareStates.KNIGHT;
+        }
+        return SquareStates.NONE;
+    }
+
+    /**
+     * Writes the legal moves of the position into a buffer, encoded by {@link Moves},
+     * in the direction order of {@link AttackTables}.
+     * @param moves the buffer, with room for at least {@link #MAX_MOVES} moves
+     * @return the number of moves written
+     */
+    public int generateMoves(int[] moves) {
+        var piece = mover();
+        if (piece == SquareStates.NONE) {
+            return 0;
+        }
+        int from = get(piece);
+        int count = 0;
+        for (int d = 0; d < AttackTables.DIRECTIONS; d++) {
+            int to = attacks.target(piece, from, d);
+            if (to >= 0 && to != king && to != knight) {
+                moves[count++] = Moves.encode(piece, from, to);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Passes every legal move of the position, encoded by {@link Moves}, to a visitor.
+     * @param visitor receives the moves in the order of {@link #generateMoves(int[])}
+     * @return the number of moves visited
+     */
+    public int forEachMove(IntConsumer visitor) {
+        var piece = mover();
+        if (piece == SquareStates.NONE) {
+            return 0;
+        }
+        int from = get(piece);
+        int count = 0;
+        for (int d = 0; d < AttackTables.DIRECTIONS; d++) {
+            int to = attacks.target(piece, from, d);
+            if (to >= 0 && to != king && to != knight) {
+                visitor.accept(Moves.encode(piece, from, to));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks if one of the pieces stands on the goal.
+     */
+    public boolean isWon() {
+        return goal >= 0 && (king == goal || knight == goal);
+    }
+
+    /**
+     * Moves a piece to a new square without validating the move.
+     * @param piece the piece to move
+     * @param square the new square of the piece
+     */
+    public void move(SquareStates piece, int square) {
+        if (piece == SquareStates.KING || piece == SquareStates.KNIGHT) {
+            set(piece, square);
+        }
+    }
+
+    /**
+     * Copies every square of another position of the same size.
+     * @param other the position to copy
+     */
+    public void copyFrom(Position other) {
+        if (other.size != size) {
+            throw new IllegalArgumentException("Board sizes differ: " + other.size + " != " + size);
+        }
+        king = other.king;
+        knight = other.knight;
+        goal = other.goal;
+    }
+
+    /**
+     * Packs the position into a single {@code long}: 16 bits each for the king, the knight,
+     * the goal and the board size, from the lowest bits upwards.
+     */
+    public long pack() {
+        return (king & FIELD_MASK)
+                | (knight & FIELD_MASK) << FIELD_BITS
+                | (goal & FIELD_MASK) << 2 * FIELD_BITS
+                | (long) size << 3 * FIELD_BITS;
+    }
+
+    /**
+     * Restores a position packed by {@link #pack()}.
+     * @param packed the packed position, which must have the same board size
+     */
+    public void unpack(long packed) {
+        if (packedSize(packed) != size) {
+            throw new IllegalArgumentException("Board sizes differ: " + packedSize(packed) + " != " + size);
+        }
+        king = packedField(packed, 0);
+        knight = packedField(packed, 1);
+        goal = packedField(packed, 2);
+    }
+
+    /**
+     * Creates a new position from a packed value.
+     * @param packed the value returned by {@link #pack()}
+     */
+    public static Position fromPacked(long packed) {
+        var position = new Position(packedSize(packed));
+        position.unpack(packed);
+        return position;
+    }
+
+    /**
+     * Gets the board size stored in a packed position.
+     */
+    public static int packedSize(long packed) {
+        return (int) (packed >>> 3 * FIELD_BITS & FIELD_MASK);
+    }
+
+    /**
+     * Gets the square of a piece or the goal stored in a packed position.
+     * @param packed the value returned by {@link #pack()}
+     * @param piece the king, the knight or the goal
+     * @return the square, or {@link #NO_SQUARE}
+     */
+    public static int packedSquare(long packed, SquareStates piece) {
+        return switch (piece) {
+            case KING -> packedField(packed, 0);
+            case KNIGHT -> packedField(packed, 1);
+            case GOAL -> packedField(packed, 2);
+            default -> throw new IllegalArgumentException("Not a piece or the goal: " + piece);
+        };
+    }
+
+    private static int packedField(long packed, int index) {
+        int value = (int) (packed >>> index * FIELD_BITS & FIELD_MASK);
+        return value == FIELD_MASK ? NO_SQUARE : value;
+    }
+
+    private boolean isKingStep(int from, int to) {
+        return to >= 0 && to < squareCount() && attacks.kingAttacks(from, to);
+    }
+
+    private boolean isKnightJump(int from, int to) {
+        return to >= 0 && to < squareCount() && attacks.knightAttacks(from, to);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Position other && other.pack() == pack();
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(pack());
+    }
+
+    @Override
+    public String toString() {
+        return "Position[king=" + king + ", knight=" + knight + ", goal=" + goal + ", size=" + size + "]";
+    }
+}
@@ -0,0 +1,82 @@
+package game.model;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Zobrist keys of positions: one random {@code long} per piece and square, and the key of a position
+ * is the xor of the keys of its king, knight and goal squares. Moving a piece updates a key with two xors.
+ * The keys are generated from a fixed seed, so they are the same in every run, and shared per board size.
+ */
+public final class Zobrist {
+
+    private static final long SEED = 0x4B48_5A4FL;
+
+    private static final AtomicReferenceArray<Zobrist> CACHE = new AtomicReferenceArray<>(65);
+
+    private final int squares;
+
+    /**
+     * The keys of the king, the knight and the goal, {@code squares} of each.
+     */
+    private final long[] keys;
+
+    private Zobrist(int size) {
+        this.squares = size * size;
+        this.keys = new long[3 * squares];
+        var random = new SplittableRandom(SEED + size);
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Gets the keys of a board size, generating them on first use.
+     * @param size the size of the board, between 1 and 64
+     */
+    public static Zobrist forSize(int size) {
+        var zobrist = CACHE.get(size);
+        if (zobrist == null) {
+            zobrist = new Zobrist(size);
+            if (!CACHE.compareAndSet(size, null, zobrist)) {
+                zobrist = CACHE.get(size);
+            }
+        }
+        return zobrist;
+    }
+
+    /**
+     * Gets the key of a piece (or the goal) on a square.
+     * @return the key, or 0 if the square is {@link Position#NO_SQUARE} or nothing is placed
+     */
+    public long key(SquareStates piece, int square) {
+        if (square < 0) {
+            return 0;
+        }
+        return switch (piece) {
+            case KING -> keys[square];
+            case KNIGHT -> keys[squares + square];
+            case GOAL -> keys[2 * squares + square];
+            case NONE -> 0;
+        };
+    }
+
+    /**
+     * Gets the key of a position.
+     * @param position a position of the same board size
+     */
+    public long key(Position position) {
+        return key(SquareStates.KING, position.king())
+                ^ key(SquareStates.KNIGHT, position.knight())
+                ^ key(SquareStates.GOAL, position.goal());
+    }
+
+    /**
+     * Gets the change of a key when a move is played or taken back.
+     * @param move the move, encoded by {@link Moves}
+     */
+    public long moveKey(int move) {
+        var piece = Moves.piece(move);
+        return key(piece, Moves.from(move)) ^ key(piece, Moves.to(move));
+    }
+}
@@ -0,0 +1,197 @@
+package game.replay;
+
+import game.model.GameModel;
+import game.model.MoveJournal;
+import game.model.Moves;
+import game.model.Position;
+
+/**
+ * A recorded game that can be played back headlessly: a start position and a stream of {@link Moves}.
+ * Every {@link #snapshotInterval()} moves the packed position is kept, so the position after any number
+ * of moves is rebuilt from the nearest snapshot with fewer moves than the interval, instead of from the start.
+ *
+ * <p>A replay is immutable once created and can be shared between threads; the positions it writes
+ * into belong to the caller.
+ */
+public final class Replay {
+
+    /**
+     * The number of moves between two snapshots, unless another is given.
+     */
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 64;
+
+    /**
+     * Returned by {@link #firstIllegalMove()} if every move is legal.
+     */
+    public static final int LEGAL = -1;
+
+    private final long start;
+    private final int[] moves;
+    private final int interval;
+    private final long[] snapshots;
+    private final MoveJournal journal;
+
+    /**
+     * Creates a replay.
+     * @param start the position before the first move, which is copied
+     * @param moves the moves, encoded by {@link Moves}, which are copied
+     * @param snapshotInterval the number of moves between two snapshots
+     * @throws IllegalArgumentException if a move does not start from the square of its piece
+     */
+    public Replay(Position start, int[] moves, int snapshotInterval) {
+        if (snapshotInterval < 1) {
+            throw new IllegalArgumentException("Snapshot interval must be positive: " + snapshotInterval);
+        }
+        this.start = start.pack();
+        this.moves = moves.clone();
+        this.interval = snapshotInterval;
+        this.snapshots = new long[moves.length / snapshotInterval + 1];
+        this.journal = new MoveJournal(moves.length);
+        var position = Position.fromPacked(this.start);
+        for (int i = 0; i < moves.length; i++) {
+            if (i % interval == 0) {
+                snapshots[i / interval] = position.pack();
+            }
+            int move = moves[i];
+            if (position.get(Moves.piece(move)) != Moves.from(move)) {
+                throw new IllegalArgumentException("Move " + (i + 1) + " (" + Moves.toString(move, position.size())
+                        + ") does not start from the square of its piece");
+            }
+            position.move(Moves.piece(move), Moves.to(move));
+            journal.record(move);
+        }
+        if (moves.length % interval == 0) {
+            snapshots[moves.length / interval] = position.pack();
+        }
+    }
+
+    /**
+     * Creates a replay of every recorded move of a journal, including the undone ones.
+     * The start position is found by taking the played moves back from the current position.
+     * @param current the position after the played moves of the journal
+     * @param journal the recorded moves
+     * @throws IllegalArgumentException if the played moves do not lead to the current position
+     */
+    public static Replay of(Position current, MoveJournal journal) {
+        var position = Position.fromPacked(current.pack());
+        for (int i = journal.ply() - 1; i >= 0; i--) {
+            int move = journal.get(i);
+            if (position.get(Moves.piece(move)) != Moves.to(move)) {
+                throw new IllegalArgumentException("Move " + (i + 1) + " (" + Moves.toString(move, position.size())
+                        + ") does not lead to the saved position");
+            }
+            position.set(Moves.piece(move), Moves.from(move));
+        }
+        return new Replay(position, journal.toArray(), DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * Creates a replay of the game of a model, with its undone moves.
+     * @param model the model, which is not changed
+     */
+    public static Replay of(GameModel model) {
+        return of(model.getPosition(), model.getJournal());
+    }
+
+    /**
+     * Gets the number of moves.
+     */
+    public int length() {
+        return moves.length;
+    }
+
+    /**
+     * Gets a move.
+     * @param index the index of the move, less than {@link #length()}
+     * @return the move, encoded by {@link Moves}
+     */
+    public int move(int index) {
+        return moves[index];
+    }
+
+    public int snapshotInterval() {
+        return interval;
+    }
+
+    /**
+     * Gets the position before the first move.
+     */
+    public Position start() {
+        return Position.fromPacked(start);
+    }
+
+    /**
+     * Writes the position after a number of moves into a position, starting from the nearest snapshot.
+     * @param ply the number of moves played, between 0 and {@link #length()}
+     * @param position a position of the board size of the replay, which is overwritten
+     */
+    public void positionAt(int ply, Position position) {
+        checkPly(ply);
+        position.unpack(snapshots[ply / interval]);
+        playSinceSnapshot(ply, position);
+    }
+
+    /**
+     * Gets the {@link Position#pack() packed} position after a number of moves, which is a snapshot
+     * itself every {@link #snapshotInterval()} moves.
+     * @param ply the number of moves played, between 0 and {@link #length()}
+     */
+    public long packedAt(int ply) {
+        checkPly(ply);
+        long snapshot = snapshots[ply / interval];
+        if (ply % interval == 0) {
+            return snapshot;
+        }
+        var position = Position.fromPacked(snapshot);
+        playSinceSnapshot(ply, position);
+        return position.pack();
+    }
+
+    /**
+     * Plays the moves from the snapshot before a number of moves on the position of that snapshot.
+     */
+    private void playSinceSnapshot(int ply, Position position) {
+        for (int i = ply - ply % interval; i < ply; i++) {
+            position.move(Moves.piece(moves[i]), Moves.to(moves[i]));
+        }
+    }
+
+    /**
+     * Sets a model to the position after a number of moves, with the moves of the replay in its journal,
+     * so the rest can be redone. The model is updated once, however far it jumps, but the journal is copied,
+     * so stepping through the moves one at a time is better done with {@link GameModel#redo()}.
+     * @param model a model of the board size of the replay
+     * @param ply the number of moves played, between 0 and {@link #length()}
+     */
+    public void seek(GameModel model, int ply) {
+        checkPly(ply);
+        var position = Position.fromPacked(snapshots[ply / interval]);
+        playSinceSnapshot(ply, position);
+        var moves = new MoveJournal(journal.length());
+        moves.copyFrom(journal);
+        moves.setPly(ply);
+        model.restore(position, moves);
+    }
+
+    /**
+     * Plays the moves on a headless position and checks each against the rules.
+     * @return the index of the first illegal move, or {@link #LEGAL}
+     */
+    public int firstIllegalMove() {
+        var position = Position.fromPacked(start);
+        for (int i = 0; i < moves.length; i++) {
+            var piece = Moves.piece(moves[i]);
+            if (!position.isLegal(piece, Moves.to(moves[i]))) {
+                return i;
+            }
+            position.move(piece, Moves.to(moves[i]));
+        }
+        return LEGAL;
+    }
+
+    private void checkPly(int ply) {
+        if (ply < 0 || ply > moves.length) {
+            throw new IndexOutOfBoundsException(ply);
+        }
+    }
+}
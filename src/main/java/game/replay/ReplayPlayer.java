@@ -0,0 +1,175 @@
+package game.replay;
+
+import game.model.GameModel;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays a {@link Replay} back on a model at a configurable speed.
+ * A daemon thread keeps the time and hands every step to the executor of the model, such as
+ * {@code Platform::runLater}, so the model is only ever touched on its own thread.
+ *
+ * <p>With a delay of zero the replay runs as fast as possible: the moves are played headlessly and the
+ * model is updated once, without going through its observable squares for each move. Otherwise each tick
+ * redoes the next move of the model, which {@link #seek} left with the moves of the replay in its journal,
+ * and only falls back to {@link Replay#seek} if the model was changed in between.
+ * The other methods are meant to be called from one thread, such as the JavaFX application thread.
+ */
+public final class ReplayPlayer implements AutoCloseable {
+
+    private final Replay replay;
+    private final GameModel model;
+    private final Executor modelExecutor;
+    private final ScheduledExecutorService timer;
+
+    private Duration delay = Duration.ofMillis(500);
+    private ScheduledFuture<?> ticks;
+    private CompletableFuture<Void> playing;
+
+    /**
+     * The number of moves played, written on the timer thread while playing.
+     */
+    private volatile int ply;
+
+    /**
+     * Creates a player.
+     * @param replay the game to play back
+     * @param model a model of the board size of the replay
+     * @param modelExecutor runs the updates of the model, in order
+     */
+    public ReplayPlayer(Replay replay, GameModel model, Executor modelExecutor) {
+        this.replay = replay;
+        this.model = model;
+        this.modelExecutor = modelExecutor;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets the time between two moves, which takes effect on the next {@link #play()}.
+     * @param delay the delay, or {@link Duration#ZERO} to play as fast as possible
+     */
+    public void setDelay(Duration delay) {
+        if (delay.isNegative()) {
+            throw new IllegalArgumentException("Negative delay: " + delay);
+        }
+        this.delay = delay;
+    }
+
+    public Duration getDelay() {
+        return delay;
+    }
+
+    /**
+     * Gets the number of moves played so far.
+     */
+    public int ply() {
+        return ply;
+    }
+
+    /**
+     * Plays the remaining moves, pausing a previous playback first.
+     * @return a future completed on the executor of the model after the last move is shown,
+     *         and cancelled if the playback is paused first
+     */
+    public CompletableFuture<Void> play() {
+        pause();
+        var future = new CompletableFuture<Void>();
+        playing = future;
+        if (delay.isZero()) {
+            int end = replay.length();
+            ply = end;
+            modelExecutor.execute(() -> {
+                if (!future.isDone()) {
+                    replay.seek(model, end);
+                    future.complete(null);
+                }
+            });
+            return future;
+        }
+        if (ply == replay.length()) {
+            future.complete(null);
+            return future;
+        }
+        long nanos = delay.toNanos();
+        var task = timer.scheduleAtFixedRate(() -> {
+            if (ply >= replay.length()) {
+                return;
+            }
+            int next = ply + 1;
+            ply = next;
+            modelExecutor.execute(() -> {
+                if (!future.isDone()) {
+                    step(next);
+                    if (next == replay.length()) {
+                        future.complete(null);
+                    }
+                }
+            });
+        }, nanos, nanos, TimeUnit.NANOSECONDS);
+        ticks = task;
+        future.whenComplete((result, error) -> task.cancel(false));
+        return future;
+    }
+
+    /**
+     * Shows the position after a number of moves on a model that shows the one before it.
+     * Runs on the executor of the model.
+     */
+    private void step(int next) {
+        var journal = model.getJournal();
+        int index = next - 1;
+        if (journal.ply() == index && journal.length() == replay.length() && journal.forgotten() == 0
+                && journal.get(index) == replay.move(index)) {
+            model.redo();
+        } else {
+            replay.seek(model, next);
+        }
+    }
+
+    /**
+     * Stops the playback after the move being shown.
+     */
+    public void pause() {
+        if (ticks != null) {
+            ticks.cancel(false);
+            ticks = null;
+        }
+        if (playing != null) {
+            playing.cancel(false);
+            playing = null;
+        }
+    }
+
+    /**
+     * Jumps to the position after a number of moves, pausing the playback.
+     * @param ply the number of moves played, between 0 and the length of the replay
+     * @return a future completed on the executor of the model once the model shows the position
+     */
+    public CompletableFuture<Void> seek(int ply) {
+        if (ply < 0 || ply > replay.length()) {
+            throw new IndexOutOfBoundsException(ply);
+        }
+        pause();
+        this.ply = ply;
+        return CompletableFuture.runAsync(() -> replay.seek(model, ply), modelExecutor);
+    }
+
+    /**
+     * Stops the playback and the timer thread.
+     */
+    @Override
+    public void close() {
+        pause();
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,342 @@
+package game.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import game.metrics.Histogram;
+import game.metrics.Metrics;
+import game.model.GameModel;
+import game.model.Position;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hosts many puzzle sessions in one JVM behind a plain-text HTTP API on the loopback interface.
+ *
+ * <pre>
+ * POST   /sessions                  starts a session, optionally of ?size=N; answers its id
+ * GET    /sessions/{id}             describes the position, see {@link GameSession#describe()}
+ * GET    /sessions/{id}/position    the position in the six integer format, read without waiting for the session
+ * POST   /sessions/{id}/move        plays the moves in the body, "row col" each, of the piece in check
+ * POST   /sessions/{id}/undo        takes back a move
+ * POST   /sessions/{id}/redo        plays an undone move again
+ * DELETE /sessions/{id}             ends a session
+ * GET    /stats                     the number of sessions, their memory and the metrics
+ * </pre>
+ *
+ * Session ids are random, so a client cannot guess the ids of the sessions of others. Creating a session
+ * when {@code maxSessions} are open answers 503, and a move request with a body longer than
+ * {@link #MAX_BODY_BYTES} answers 413.
+ * A move request stops at the first illegal move and answers 409 with the number of moves played;
+ * impossible undos and redos answer 409 too. Sending many moves in one request saves the cost of a round trip
+ * per move, which is most of the cost of a validation. Each request runs on its own virtual thread when the
+ * runtime has them (Java 21 and later) and on a cached thread pool otherwise, so a slow client only holds
+ * up the requests of its own session. Sessions idle for longer than the idle timeout are dropped.
+ */
+public final class GameServer implements AutoCloseable {
+
+    /**
+     * The number of open sessions allowed unless another is given.
+     */
+    public static final int DEFAULT_MAX_SESSIONS = 10_000;
+
+    /**
+     * The longest body of a move request, room for thousands of moves.
+     */
+    public static final int MAX_BODY_BYTES = 1 << 16;
+
+    private static final Histogram REQUEST = Metrics.histogram("server.request");
+    private static final LongAdder MOVES = Metrics.counter("server.moves");
+    private static final LongAdder ILLEGAL_MOVES = Metrics.counter("server.moves.illegal");
+
+    static {
+        // the server writes the headers and the body of a response separately; with Nagle's algorithm the
+        // body then waits for the delayed acknowledgement of the headers, about 40 ms on Linux
+        System.getProperties().putIfAbsent("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer http;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService sweeper;
+    private final Map<String, GameSession> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final long idleNanos;
+    private final int maxSessions;
+
+    /**
+     * The number of sessions created and not yet dropped, reserved before a session is added
+     * so that concurrent requests never go over the limit.
+     */
+    private final AtomicInteger openSessions = new AtomicInteger();
+
+    /**
+     * Starts a server allowing {@link #DEFAULT_MAX_SESSIONS} sessions.
+     * @param port the port to listen on, or 0 for any free port
+     * @param idleTimeout the time after which a session without requests is dropped
+     * @throws IOException if the port cannot be bound
+     */
+    public GameServer(int port, Duration idleTimeout) throws IOException {
+        this(port, idleTimeout, DEFAULT_MAX_SESSIONS);
+    }
+
+    /**
+     * Starts a server.
+     * @param port the port to listen on, or 0 for any free port
+     * @param idleTimeout the time after which a session without requests is dropped
+     * @param maxSessions the number of sessions that can be open at once
+     * @throws IOException if the port cannot be bound
+     */
+    public GameServer(int port, Duration idleTimeout, int maxSessions) throws IOException {
+        if (maxSessions < 1) {
+            throw new IllegalArgumentException("Maximum session count must be positive: " + maxSessions);
+        }
+        this.idleNanos = idleTimeout.toNanos();
+        this.maxSessions = maxSessions;
+        this.http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        this.executor = requestExecutor();
+        http.setExecutor(executor);
+        http.createContext("/sessions", this::handleSession);
+        http.createContext("/stats", exchange -> handle(exchange, () -> respond(exchange, 200, stats())));
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(idleNanos / 4, TimeUnit.SECONDS.toNanos(1));
+        sweeper.scheduleAtFixedRate(this::dropIdleSessions, period, period, TimeUnit.NANOSECONDS);
+        http.start();
+        Logger.info("Game server listening on port {}", port());
+    }
+
+    /**
+     * Gets the port the server listens on.
+     */
+    public int port() {
+        return http.getAddress().getPort();
+    }
+
+    /**
+     * Gets the number of open sessions.
+     */
+    public int sessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Creates an executor running every task on a new virtual thread if the runtime supports them,
+     * looked up reflectively because the code is compiled for Java 17.
+     */
+    private static ExecutorService requestExecutor() {
+        try {
+            var factory = MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+            return (ExecutorService) factory.invokeExact();
+        } catch (Throwable e) {
+            // before Java 21 the method is missing, or a preview feature that is not enabled
+            var count = new AtomicInteger();
+            return Executors.newCachedThreadPool(runnable -> {
+                var thread = new Thread(runnable, "game-server-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void handleSession(HttpExchange exchange) {
+        handle(exchange, () -> {
+            // the path is /sessions, /sessions/{id} or /sessions/{id}/{action}
+            var parts = exchange.getRequestURI().getPath().split("/");
+            var method = exchange.getRequestMethod();
+            if (parts.length == 2) {
+                if (!method.equals("POST")) {
+                    respond(exchange, 405, "POST to start a session\n");
+                    return;
+                }
+                var id = create(exchange.getRequestURI().getQuery());
+                if (id == null) {
+                    respond(exchange, 503, "Too many sessions\n");
+                } else {
+                    respond(exchange, 201, id + "\n");
+                }
+                return;
+            }
+            var session = sessions.get(parts[2]);
+            if (session == null) {
+                respond(exchange, 404, "No session " + parts[2] + "\n");
+                return;
+            }
+            var action = parts.length > 3 ? parts[3] : "";
+            switch (method + " " + action) {
+                case "GET " -> respond(exchange, 200, session.describe());
+                case "GET position" -> respond(exchange, 200, GameSession.format(Position.fromPacked(session.snapshot())) + "\n");
+                case "DELETE " -> {
+                    drop(session);
+                    respond(exchange, 204, null);
+                }
+                case "POST move" -> move(exchange, session);
+                case "POST undo" -> respondResult(exchange, session.undo(), "Nothing to undo\n");
+                case "POST redo" -> respondResult(exchange, session.redo(), "Nothing to redo\n");
+                default -> respond(exchange, 405, "Unknown request " + method + " " + action + "\n");
+            }
+        });
+    }
+
+    /**
+     * Starts a session.
+     * @return the id of the session, or null if the maximum number of sessions are open
+     */
+    private String create(String query) {
+        int size = GameModel.DEFAULT_SIZE;
+        if (query != null && query.startsWith("size=")) {
+            size = Integer.parseInt(query.substring("size=".length()));
+        }
+        if (openSessions.incrementAndGet() > maxSessions) {
+            openSessions.decrementAndGet();
+            return null;
+        }
+        GameModel model;
+        try {
+            model = new GameModel(size, GameSession.JOURNAL_LIMIT);
+        } catch (RuntimeException e) {
+            openSessions.decrementAndGet();
+            throw e;
+        }
+        var bytes = new byte[16];
+        String id;
+        do {
+            random.nextBytes(bytes);
+            id = HexFormat.of().formatHex(bytes);
+        } while (sessions.putIfAbsent(id, new GameSession(id, model)) != null);
+        return id;
+    }
+
+    /**
+     * Removes a session unless it is already gone.
+     */
+    private void drop(GameSession session) {
+        if (sessions.remove(session.id(), session)) {
+            openSessions.decrementAndGet();
+        }
+    }
+
+    private void move(HttpExchange exchange, GameSession session) throws IOException {
+        var length = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (length != null && Long.parseLong(length.trim()) > MAX_BODY_BYTES) {
+            respond(exchange, 413, "At most " + MAX_BODY_BYTES + " bytes of moves\n");
+            return;
+        }
+        // a chunked body has no length, so one byte more than allowed is read to find out
+        var bytes = exchange.getRequestBody().readNBytes(MAX_BODY_BYTES + 1);
+        if (bytes.length > MAX_BODY_BYTES) {
+            respond(exchange, 413, "At most " + MAX_BODY_BYTES + " bytes of moves\n");
+            return;
+        }
+        var body = new String(bytes, StandardCharsets.US_ASCII).trim().split("\\s+");
+        if (body.length % 2 != 0 || body[0].isEmpty()) {
+            throw new IllegalArgumentException("Expected \"row col\" for every move");
+        }
+        var targets = new int[body.length];
+        for (int i = 0; i < body.length; i++) {
+            targets[i] = Integer.parseInt(body[i]);
+        }
+        int played = session.move(targets);
+        MOVES.add(played);
+        if (played == targets.length / 2) {
+            respond(exchange, 200, "ok " + played + "\n");
+        } else {
+            ILLEGAL_MOVES.increment();
+            respond(exchange, 409, "Illegal move " + (played + 1) + ", " + played + " played\n");
+        }
+    }
+
+    private String stats() {
+        long bytes = 0;
+        for (var session : sessions.values()) {
+            bytes += session.retainedBytes();
+        }
+        int count = sessions.size();
+        return String.format("sessions %d%nsession.bytes %d%nsession.bytes.mean %d%n%s",
+                count, bytes, count == 0 ? 0 : bytes / count, Metrics.dump());
+    }
+
+    private void dropIdleSessions() {
+        long now = System.nanoTime();
+        for (var session : sessions.values()) {
+            if (now - session.lastAccess() > idleNanos) {
+                drop(session);
+            }
+        }
+    }
+
+    /**
+     * The body of a request, which may fail.
+     */
+    private interface Action {
+        void run() throws IOException;
+    }
+
+    /**
+     * Runs a request, answering 400 to malformed ones, and times it.
+     */
+    private void handle(HttpExchange exchange, Action action) {
+        long start = System.nanoTime();
+        try (exchange) {
+            try {
+                action.run();
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, e.getMessage() + "\n");
+            }
+        } catch (IOException e) {
+            Logger.debug(e, "Error answering {}", exchange.getRequestURI());
+        } finally {
+            REQUEST.recordSince(start);
+        }
+    }
+
+    private static void respondResult(HttpExchange exchange, boolean done, String failure) throws IOException {
+        if (done) {
+            respond(exchange, 200, "ok\n");
+        } else {
+            respond(exchange, 409, failure);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        var bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    /**
+     * Stops accepting requests and drops every session.
+     */
+    @Override
+    public void close() {
+        http.stop(0);
+        sweeper.shutdownNow();
+        executor.shutdownNow();
+        sessions.clear();
+        openSessions.set(0);
+    }
+}
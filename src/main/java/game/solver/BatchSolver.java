@@ -0,0 +1,253 @@
+package game.solver;
+
+import game.model.Position;
+import org.tinylog.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Solves a stream of positions in parallel on a {@link ForkJoinPool}.
+ * Every line of the input holds the six integers returned by {@code GameModel.getPositions()}
+ * (king row, king column, knight row, knight column, goal row, goal column) separated by any
+ * non-digit characters, so plain text and JSON arrays are both accepted. Lines are read and
+ * solved in chunks, with a bounded number of chunks in flight, so the input is never held in memory.
+ * Results are passed to the consumer on the calling thread once their chunk finishes, in no particular order,
+ * so the workers never wait for the output.
+ */
+public final class BatchSolver {
+
+    private static final int CHUNK_SIZE = 256;
+
+    private final int size;
+    private final int parallelism;
+
+    /**
+     * The outcome of one input line.
+     * @param line the number of the line, starting from 1
+     * @param position the position of the line
+     * @param solution the shortest solution of the position
+     */
+    public record Result(long line, Position position, Solution solution) {
+
+        /**
+         * Formats the result as {@code line solvable length moves}.
+         */
+        @Override
+        public String toString() {
+            return line + " " + solution.isSolvable() + " " + solution.length() + " " + solution.toString(position.size());
+        }
+    }
+
+    /**
+     * The totals of a batch.
+     * @param positions the number of solved positions
+     * @param solvable the number of solvable positions
+     * @param nanos the wall-clock duration of the batch
+     */
+    public record Stats(long positions, long solvable, long nanos) {
+
+        public double positionsPerSecond() {
+            return nanos == 0 ? 0 : positions * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d positions (%d solvable) in %.1f ms, %.0f positions/sec",
+                    positions, solvable, nanos / 1e6, positionsPerSecond());
+        }
+    }
+
+    /**
+     * Creates a batch solver.
+     * @param size the size of the board
+     * @param parallelism the number of worker threads
+     */
+    public BatchSolver(int size, int parallelism) {
+        this.size = size;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Creates a batch solver using every available core.
+     * @param size the size of the board
+     */
+    public BatchSolver(int size) {
+        this(size, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Solves every position of a reader.
+     * @param in the positions, one per line
+     * @param out receives the results as their chunks finish, on the calling thread
+     * @return the totals of the batch
+     * @throws IOException if the input cannot be read
+     */
+    public Stats solve(BufferedReader in, Consumer<Result> out) throws IOException {
+        long start = System.nanoTime();
+        var pool = new ForkJoinPool(parallelism);
+        int maxInFlight = parallelism * 2;
+        // the workers hand their finished chunks to the reading thread, which passes them on, so a slow
+        // consumer holds up the reading of the input but never the workers
+        var done = new LinkedBlockingQueue<Result[]>();
+        var solvers = ThreadLocal.withInitial(() -> new Solver(size));
+        long[] totals = new long[2];
+        var failure = new AtomicReference<RuntimeException>();
+        int inFlight = 0;
+        long lineNumber = 0;
+        try {
+            while (true) {
+                String[] chunk = new String[CHUNK_SIZE];
+                int count = 0;
+                String line;
+                while (count < CHUNK_SIZE && (line = in.readLine()) != null) {
+                    chunk[count++] = line;
+                }
+                if (count == 0) {
+                    break;
+                }
+                long firstLine = lineNumber + 1;
+                lineNumber += count;
+                int lines = count;
+                while (inFlight == maxInFlight) {
+                    accept(take(done), totals, out);
+                    inFlight--;
+                }
+                inFlight++;
+                pool.execute(() -> {
+                    var results = new Result[lines];
+                    try {
+                        var solver = solvers.get();
+                        for (int i = 0; i < lines; i++) {
+                            var position = parse(chunk[i], firstLine + i);
+                            if (position != null) {
+                                results[i] = new Result(firstLine + i, position, solver.solve(position));
+                            }
+                        }
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        done.add(results);
+                    }
+                });
+                for (var results = done.poll(); results != null; results = done.poll()) {
+                    accept(results, totals, out);
+                    inFlight--;
+                }
+            }
+            for (; inFlight > 0; inFlight--) {
+                accept(take(done), totals, out);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return new Stats(totals[0], totals[1], System.nanoTime() - start);
+    }
+
+    /**
+     * Waits for a finished chunk. The workers finish their chunks anyway, so an interrupt is kept for later.
+     */
+    private static Result[] take(BlockingQueue<Result[]> done) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return done.take();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void accept(Result[] results, long[] totals, Consumer<Result> out) {
+        for (var result : results) {
+            if (result != null) {
+                totals[0]++;
+                if (result.solution().isSolvable()) {
+                    totals[1]++;
+                }
+                out.accept(result);
+            }
+        }
+    }
+
+    /**
+     * Solves every position of a file.
+     * @param file the positions, one per line
+     * @param out receives the results as they finish
+     * @return the totals of the batch
+     * @throws IOException if the file cannot be read
+     */
+    public Stats solve(Path file, Consumer<Result> out) throws IOException {
+        try (var in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return solve(in, out);
+        }
+    }
+
+    /**
+     * Parses the six integers of a line into a position, or returns {@code null} for blank and invalid lines.
+     * Signed and overlong numbers make the line invalid rather than being read as other squares.
+     */
+    private Position parse(String line, long lineNumber) {
+        int[] values = new int[6];
+        int count = 0;
+        int i = 0;
+        int length = line.length();
+        while (i < length) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                if ((c == '-' || c == '+') && i + 1 < length && line.charAt(i + 1) >= '0' && line.charAt(i + 1) <= '9') {
+                    Logger.warn("Line {}: signed number", lineNumber);
+                    return null;
+                }
+                i++;
+                continue;
+            }
+            int value = 0;
+            while (i < length && (c = line.charAt(i)) >= '0' && c <= '9') {
+                if (value > (Integer.MAX_VALUE - (c - '0')) / 10) {
+                    Logger.warn("Line {}: number out of range", lineNumber);
+                    return null;
+                }
+                value = value * 10 + (c - '0');
+                i++;
+            }
+            if (count == values.length) {
+                count++;
+                break;
+            }
+            values[count++] = value;
+        }
+        if (count == 0) {
+            return null;
+        }
+        if (count != values.length) {
+            Logger.warn("Line {}: expected 6 integers", lineNumber);
+            return null;
+        }
+        for (int value : values) {
+            if (value >= size) {
+                Logger.warn("Line {}: square outside of the {}x{} board", lineNumber, size, size);
+                return null;
+            }
+        }
+        return new Position(size, values[0] * size + values[1], values[2] * size + values[3],
+                values[4] * size + values[5]);
+    }
+}
@@ -0,0 +1,217 @@
+package game.solver;
+
+import game.model.Moves;
+import game.model.Position;
+import game.model.Zobrist;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Finds the next move of a shortest solution on a background thread.
+ * Callers announce every new position with {@link #precompute(Position)}, so the hint is usually ready
+ * before it is asked for; announcing a new position cancels the computation of the previous one if it
+ * has not started yet. Results are cached in a {@link TranspositionTable} keyed by the Zobrist key of
+ * the position, so going back to an earlier position answers at once.
+ *
+ * <p>The methods are meant to be called from one thread, such as the JavaFX application thread,
+ * and never block it. With a tablebase the hint is a lookup of the successors; without one the
+ * position is solved with a {@link Solver}. A tablebase can be handed over later, once it is loaded.
+ */
+public final class HintService implements AutoCloseable {
+
+    /**
+     * The hint of a position that is won, unsolvable or has no legal move.
+     */
+    public static final int NO_HINT = -1;
+
+    private static final int TABLE_ENTRIES = 1 << 16;
+
+    private final int size;
+    private final Zobrist zobrist;
+    private volatile Tablebase tablebase;
+    private final TranspositionTable table = new TranspositionTable(TABLE_ENTRIES);
+    private final ExecutorService executor;
+
+    /**
+     * Used by the worker thread only; the solver is created on the first hint without a tablebase.
+     */
+    private Solver solver;
+    private final Position scratch;
+    private final int[] moves = new int[Position.MAX_MOVES];
+
+    private long pendingPosition;
+    private CompletableFuture<Integer> pending;
+
+    /**
+     * Creates a service solving the positions with a {@link Solver}.
+     * @param size the size of the board
+     */
+    public HintService(int size) {
+        this(size, null);
+    }
+
+    /**
+     * Creates a service.
+     * @param size the size of the board
+     * @param tablebase a tablebase of the board size to look the hints up in, or {@code null} to solve them
+     */
+    public HintService(int size, Tablebase tablebase) {
+        this.size = size;
+        this.zobrist = Zobrist.forSize(size);
+        setTablebase(tablebase);
+        this.scratch = new Position(size);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "hint-service");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets the tablebase the hints are looked up in from now on, such as one loaded after the service started.
+     * Can be called from any thread.
+     * @param tablebase a tablebase of the board size, or {@code null} to solve the hints
+     */
+    public void setTablebase(Tablebase tablebase) {
+        if (tablebase != null && tablebase.size() != size) {
+            throw new IllegalArgumentException("Board sizes differ: " + tablebase.size() + " != " + size);
+        }
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Starts computing the hint of a position in the background, unless it is cached or already being computed.
+     * @param position the position, which is copied
+     */
+    public void precompute(Position position) {
+        request(position);
+    }
+
+    /**
+     * Gets the hint of a position.
+     * @param position the position, which is copied
+     * @return a future completed with the move, encoded by {@link Moves}, or {@link #NO_HINT};
+     *         already completed if the hint is cached, cancelled if another position is requested first,
+     *         and completed exceptionally if the search fails
+     */
+    public CompletableFuture<Integer> hint(Position position) {
+        return request(position);
+    }
+
+    /**
+     * Gets the number of moves needed to win from a position, looked up in the tablebase without waiting
+     * for the worker thread.
+     * @param position the position
+     * @return the distance, or {@link Tablebase#UNSOLVABLE} if the goal cannot be reached
+     * @throws IllegalStateException if the service has no tablebase
+     */
+    public int movesToWin(Position position) {
+        var tablebase = this.tablebase;
+        if (tablebase == null) {
+            throw new IllegalStateException("No tablebase set");
+        }
+        return tablebase.distance(position);
+    }
+
+    /**
+     * Gets the hint of a position if it is cached.
+     * @param position the position
+     * @return the move, {@link #NO_HINT}, or {@code null} if the hint is not known yet
+     */
+    public Integer cachedHint(Position position) {
+        long entry = table.probe(zobrist.key(position));
+        if (entry == TranspositionTable.MISS) {
+            return null;
+        }
+        return TranspositionTable.value(entry) < 0 ? NO_HINT : TranspositionTable.move(entry);
+    }
+
+    private CompletableFuture<Integer> request(Position position) {
+        if (position.size() != size) {
+            throw new IllegalArgumentException("Board sizes differ: " + position.size() + " != " + size);
+        }
+        var cached = cachedHint(position);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        long packed = position.pack();
+        // a settled request that missed the cache failed or was cancelled, so it is computed again
+        if (pending != null && pendingPosition == packed && !pending.isDone()) {
+            return pending;
+        }
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        var future = new CompletableFuture<Integer>();
+        pending = future;
+        pendingPosition = packed;
+        long key = zobrist.key(position);
+        executor.execute(() -> {
+            if (!future.isDone()) {
+                try {
+                    future.complete(compute(packed, key));
+                } catch (RuntimeException | Error e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Computes and caches a hint on the worker thread.
+     */
+    private int compute(long packed, long key) {
+        scratch.unpack(packed);
+        int move = NO_HINT;
+        int distance = Tablebase.UNSOLVABLE;
+        var tablebase = this.tablebase;
+        if (!scratch.isWon()) {
+            if (tablebase != null) {
+                distance = tablebase.distance(scratch);
+                move = bestSuccessor(tablebase, distance);
+            } else {
+                if (solver == null) {
+                    solver = new Solver(size);
+                }
+                var solution = solver.solve(scratch);
+                if (solution.isSolvable()) {
+                    distance = solution.length();
+                    move = solution.move(0);
+                }
+            }
+        }
+        table.store(key, move, Math.max(distance, 0), move == NO_HINT ? -1 : distance);
+        return move;
+    }
+
+    /**
+     * Finds a move leading to a position one move closer to the goal.
+     */
+    private int bestSuccessor(Tablebase tablebase, int distance) {
+        if (distance <= 0) {
+            return NO_HINT;
+        }
+        int count = scratch.generateMoves(moves);
+        long packed = scratch.pack();
+        for (int i = 0; i < count; i++) {
+            scratch.move(Moves.piece(moves[i]), Moves.to(moves[i]));
+            int next = tablebase.distance(scratch);
+            scratch.unpack(packed);
+            if (next == distance - 1) {
+                return moves[i];
+            }
+        }
+        return NO_HINT;
+    }
+
+    /**
+     * Stops the worker thread.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,338 @@
+package game.solver;
+
+import game.model.Position;
+import game.model.SquareStates;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/**
+ * Every valid start of a board size, sorted by the length of its shortest solution.
+ * A valid start has three distinct squares, exactly one piece in check and a reachable goal.
+ * The starts of a length are contiguous, so a random puzzle of a length, or of a range of lengths,
+ * is one random index and one read.
+ *
+ * <p>The file format is a big-endian header (magic, version, board size, bytes per start, length of the
+ * hardest puzzle, number of starts), the number of starts of every length from 0 to the hardest, and the
+ * starts, each encoded as {@code (goal * squares + king) * squares + knight} in the fewest bytes that hold
+ * every configuration of the board: 2 bytes up to 6x6, 3 bytes up to 16x16. Within a length the starts
+ * are in index order.
+ */
+public final class PuzzleCatalog {
+
+    private static final int MAGIC = 0x4B485043;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+
+    private final int size;
+    private final int squares;
+    private final int startBytes;
+
+    /**
+     * The index of the first start of every length, followed by the number of starts.
+     */
+    private final int[] offsets;
+    private final ByteBuffer starts;
+
+    private PuzzleCatalog(int size, int startBytes, int[] offsets, ByteBuffer starts) {
+        this.size = size;
+        this.squares = size * size;
+        this.startBytes = startBytes;
+        this.offsets = offsets;
+        this.starts = starts;
+    }
+
+    /**
+     * Enumerates the valid starts of a tablebase.
+     * @param tablebase the tablebase of the board size
+     */
+    public static PuzzleCatalog build(Tablebase tablebase) {
+        int[] counts = new int[256];
+        scan(tablebase, counts, null, 0);
+        int max = 0;
+        for (int length = 0; length < counts.length; length++) {
+            if (counts[length] > 0) {
+                max = length;
+            }
+        }
+        int[] offsets = new int[max + 2];
+        for (int length = 0; length <= max; length++) {
+            offsets[length + 1] = offsets[length] + counts[length];
+        }
+        int startBytes = startBytes(tablebase.size());
+        var starts = ByteBuffer.allocate(offsets[max + 1] * startBytes);
+        int[] next = new int[max + 1];
+        System.arraycopy(offsets, 0, next, 0, max + 1);
+        scan(tablebase, next, starts, startBytes);
+        return new PuzzleCatalog(tablebase.size(), startBytes, offsets, starts);
+    }
+
+    /**
+     * Visits every valid start, counting them by length or, if a buffer is given, writing each at the
+     * next index of its length.
+     */
+    private static void scan(Tablebase tablebase, int[] next, ByteBuffer starts, int startBytes) {
+        int squares = tablebase.size() * tablebase.size();
+        var position = new Position(tablebase.size());
+        for (int goal = 0; goal < squares; goal++) {
+            for (int king = 0; king < squares; king++) {
+                for (int knight = 0; knight < squares; knight++) {
+                    int length = startLength(tablebase, position, king, knight, goal);
+                    if (length <= 0) {
+                        continue;
+                    }
+                    if (starts != null) {
+                        int state = (goal * squares + king) * squares + knight;
+                        int offset = next[length] * startBytes;
+                        for (int b = startBytes - 1; b >= 0; b--) {
+                            starts.put(offset + b, (byte) state);
+                            state >>>= 8;
+                        }
+                    }
+                    next[length]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the optimal solution length of a start, or a non-positive value if it is not a valid start.
+     */
+    private static int startLength(Tablebase tablebase, Position position, int king, int knight, int goal) {
+        if (king == knight || king == goal || knight == goal) {
+            return 0;
+        }
+        position.set(SquareStates.KING, king);
+        position.set(SquareStates.KNIGHT, knight);
+        position.set(SquareStates.GOAL, goal);
+        if (position.isInCheck(SquareStates.KING) == position.isInCheck(SquareStates.KNIGHT)) {
+            return 0;
+        }
+        return tablebase.distance(king, knight, goal);
+    }
+
+    private static int startBytes(int size) {
+        long states = (long) size * size * size * size * size * size;
+        return states <= 1 << 16 ? 2 : states <= 1 << 24 ? 3 : 4;
+    }
+
+    /**
+     * Writes the catalog to a file, replacing it atomically.
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        int max = maxLength();
+        var header = ByteBuffer.allocate(HEADER_SIZE + 4 * (max + 1));
+        header.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(startBytes).putInt(max).putInt(count());
+        for (int length = 0; length <= max; length++) {
+            header.putInt(count(length));
+        }
+        header.flip();
+        MappedFiles.write(path, header, starts.duplicate().clear());
+    }
+
+    /**
+     * Memory-maps a catalog file.
+     * @param path the file written by {@link #write(Path)}
+     * @throws IOException if the file cannot be read or is not a catalog
+     */
+    public static PuzzleCatalog map(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.BIG_ENDIAN);
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a puzzle catalog file: " + path);
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported puzzle catalog version " + buffer.getInt(4) + ": " + path);
+            }
+            int size = buffer.getInt(8);
+            int startBytes = buffer.getInt(12);
+            int max = buffer.getInt(16);
+            int total = buffer.getInt(20);
+            if (size < 1 || startBytes != startBytes(size) || max < 0 || max > 0xFF
+                    || buffer.capacity() < HEADER_SIZE + 4L * (max + 1)) {
+                throw new IOException("Malformed puzzle catalog file: " + path);
+            }
+            int[] offsets = new int[max + 2];
+            for (int length = 0; length <= max; length++) {
+                offsets[length + 1] = offsets[length] + buffer.getInt(HEADER_SIZE + 4 * length);
+            }
+            int body = HEADER_SIZE + 4 * (max + 1);
+            if (offsets[max + 1] != total || buffer.capacity() != body + (long) total * startBytes) {
+                throw new IOException("Truncated puzzle catalog file: " + path);
+            }
+            return new PuzzleCatalog(size, startBytes, offsets, buffer.slice(body, total * startBytes));
+        }
+    }
+
+    /**
+     * Maps the catalog file if it exists, or builds the catalog from a new tablebase and writes it to the file.
+     * A file that is not a catalog of the board size, such as one cut short by an older version, is built again.
+     * @param path the catalog file
+     * @param size the size of the board
+     * @throws IOException if the file cannot be written
+     */
+    public static PuzzleCatalog loadOrBuild(Path path, int size) throws IOException {
+        var catalog = mapIfSize(path, size);
+        if (catalog == null) {
+            catalog = build(Tablebase.generate(size));
+            catalog.write(path);
+        }
+        return catalog;
+    }
+
+    /**
+     * Maps the catalog file if it exists, or builds the catalog from a tablebase and writes it to the file.
+     * A file that is not a catalog of the board size is built again.
+     * @param path the catalog file
+     * @param tablebase the tablebase of the board size
+     * @throws IOException if the file cannot be written
+     */
+    public static PuzzleCatalog loadOrBuild(Path path, Tablebase tablebase) throws IOException {
+        var catalog = mapIfSize(path, tablebase.size());
+        if (catalog == null) {
+            catalog = build(tablebase);
+            catalog.write(path);
+        }
+        return catalog;
+    }
+
+    /**
+     * Maps the catalog file if it exists and is a catalog of the board size.
+     * @return the catalog, or null if it has to be built again
+     */
+    private static PuzzleCatalog mapIfSize(Path path, int size) {
+        if (Files.exists(path)) {
+            try {
+                var catalog = map(path);
+                if (catalog.size() == size) {
+                    return catalog;
+                }
+            } catch (IOException e) {
+                Logger.warn("Building the puzzle catalog again: {}", e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the length of the hardest puzzle.
+     */
+    public int maxLength() {
+        return offsets.length - 2;
+    }
+
+    /**
+     * Gets the number of valid starts.
+     */
+    public int count() {
+        return offsets[offsets.length - 1];
+    }
+
+    /**
+     * Gets the number of valid starts with an optimal solution length.
+     * @param length the number of moves
+     */
+    public int count(int length) {
+        return length < 0 || length > maxLength() ? 0 : offsets[length + 1] - offsets[length];
+    }
+
+    /**
+     * Gets the number of valid starts with an optimal solution length in a range.
+     * @param minLength the smallest number of moves
+     * @param maxLength the largest number of moves
+     */
+    public int count(int minLength, int maxLength) {
+        int from = clampLength(minLength);
+        int to = maxLength >= maxLength() ? maxLength() + 1 : clampLength(maxLength + 1);
+        return to <= from ? 0 : offsets[to] - offsets[from];
+    }
+
+    /**
+     * Writes a start into a position.
+     * @param length the number of moves of its shortest solution
+     * @param index the index of the start among the ones of that length
+     * @param into the position receiving the start
+     */
+    public void get(int length, int index, Position into) {
+        if (index < 0 || index >= count(length)) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        decode(offsets[length] + index, into);
+    }
+
+    /**
+     * Writes a random start with an optimal solution length in a range into a position.
+     * Every start of the range is equally likely.
+     * @param minLength the smallest number of moves
+     * @param maxLength the largest number of moves
+     * @param random the source of the pick
+     * @param into the position receiving the start
+     * @throws IllegalArgumentException if there is no start in the range
+     */
+    public void pick(int minLength, int maxLength, SplittableRandom random, Position into) {
+        int count = count(minLength, maxLength);
+        if (count == 0) {
+            throw new IllegalArgumentException("No puzzle of length " + minLength
+                    + (minLength == maxLength ? "" : " to " + maxLength) + " on a " + size + "x" + size + " board");
+        }
+        decode(offsets[clampLength(minLength)] + random.nextInt(count), into);
+    }
+
+    /**
+     * Writes one of the hardest starts into a position.
+     * @param into the position receiving the start
+     */
+    public void hardest(Position into) {
+        get(maxLength(), 0, into);
+    }
+
+    /**
+     * Formats the number of starts of every length, the total and one of the hardest starts,
+     * written as the rows and columns of the king, the knight and the goal.
+     */
+    public String stats() {
+        var sb = new StringBuilder();
+        sb.append(String.format("board:   %dx%d%n", size, size));
+        sb.append(String.format("puzzles: %d (%d bytes)%n", count(), (long) count() * startBytes));
+        for (int length = 1; length <= maxLength(); length++) {
+            sb.append(String.format("%7d: %d%n", length, count(length)));
+        }
+        if (count() > 0) {
+            var position = new Position(size);
+            hardest(position);
+            sb.append(String.format("hardest: %d %d %d %d %d %d (%d moves)%n",
+                    position.row(position.king()), position.col(position.king()),
+                    position.row(position.knight()), position.col(position.knight()),
+                    position.row(position.goal()), position.col(position.goal()), maxLength()));
+        }
+        return sb.toString();
+    }
+
+    private int clampLength(int length) {
+        return Math.max(0, Math.min(length, maxLength() + 1));
+    }
+
+    private void decode(int index, Position into) {
+        int state = 0;
+        int offset = index * startBytes;
+        for (int b = 0; b < startBytes; b++) {
+            state = state << 8 | starts.get(offset + b) & 0xFF;
+        }
+        into.set(SquareStates.KNIGHT, state % squares);
+        into.set(SquareStates.KING, state / squares % squares);
+        into.set(SquareStates.GOAL, state / squares / squares);
+    }
+}
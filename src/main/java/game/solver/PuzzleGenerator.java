@@ -0,0 +1,244 @@
+package game.solver;
+
+import game.model.AttackTables;
+import game.model.Position;
+import game.model.SquareStates;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generates solvable starting positions, optionally with an exact optimal solution length.
+ * Every valid start is enumerated once into a {@link PuzzleCatalog} sorted by its distance to
+ * the goal, so a puzzle is a single random pick. A valid start has three distinct squares, exactly
+ * one piece in check and a reachable goal. The sequence of puzzles only depends on the seed.
+ *
+ * <p>Boards too large for a tablebase use a sampling generator instead, which places the pieces so
+ * that one of them is in check and keeps the first start the {@link Solver} proves solvable.
+ * It gives up after {@link #MAX_SAMPLING_WORK} units of solver work, counted in expanded states rather than
+ * time so that a seed gives the same puzzle, or the same failure, on every machine. That can take a second
+ * or two on the largest boards, so interactive callers should run it off their UI thread.
+ * A generator is not thread-safe; use one instance per thread.
+ */
+public final class PuzzleGenerator {
+
+    /**
+     * The largest board size whose puzzles are enumerated from a tablebase by {@link #forSize(int, long)}.
+     */
+    public static final int TABLEBASE_MAX_SIZE = 12;
+
+    /**
+     * The number of random starts a sampling generator tries before giving up.
+     */
+    private static final int MAX_ATTEMPTS = 100_000;
+
+    /**
+     * The work a sampling generator does before giving up, in states expanded by the solver plus the words
+     * of its visited set cleared before each solve, as a single solve of an unsolvable start visits every
+     * reachable state, millions on the largest boards.
+     */
+    private static final long MAX_SAMPLING_WORK = 25_000_000L;
+
+    private final int size;
+    private final int squares;
+    private final SplittableRandom random;
+
+    /**
+     * The valid starts, {@code null} for a sampling generator.
+     */
+    private final PuzzleCatalog catalog;
+
+    /**
+     * The solver of a sampling generator, {@code null} if the starts are enumerated.
+     */
+    private final Solver solver;
+
+    /**
+     * Creates a generator.
+     * @param tablebase the tablebase of the board size
+     * @param seed the seed of the random picks
+     */
+    public PuzzleGenerator(Tablebase tablebase, long seed) {
+        this(PuzzleCatalog.build(tablebase), seed);
+    }
+
+    /**
+     * Creates a generator picking from a catalog, such as one mapped from a file.
+     * @param catalog the valid starts of the board size
+     * @param seed the seed of the random picks
+     */
+    public PuzzleGenerator(PuzzleCatalog catalog, long seed) {
+        this.size = catalog.size();
+        this.squares = size * size;
+        this.catalog = catalog;
+        this.random = new SplittableRandom(seed);
+        this.solver = null;
+    }
+
+    private PuzzleGenerator(int size, long seed) {
+        this.size = size;
+        this.squares = size * size;
+        this.catalog = null;
+        this.random = new SplittableRandom(seed);
+        this.solver = new Solver(size);
+    }
+
+    /**
+     * Creates a generator for a board size: enumerated from a freshly computed tablebase
+     * up to {@link #TABLEBASE_MAX_SIZE}, sampling above it.
+     * @param size the size of the board
+     * @param seed the seed of the random picks
+     */
+    public static PuzzleGenerator forSize(int size, long seed) {
+        if (size <= TABLEBASE_MAX_SIZE) {
+            return new PuzzleGenerator(Tablebase.generate(size), seed);
+        }
+        return sampling(size, seed);
+    }
+
+    /**
+     * Creates a sampling generator, which needs no tablebase and works on every board size.
+     * @param size the size of the board
+     * @param seed the seed of the random picks
+     */
+    public static PuzzleGenerator sampling(int size, long seed) {
+        return new PuzzleGenerator(size, seed);
+    }
+
+    /**
+     * Creates a generator sharing the enumerated starts of this one, with another seed.
+     * @param seed the seed of the random picks
+     */
+    public PuzzleGenerator withSeed(long seed) {
+        return catalog == null ? sampling(size, seed) : new PuzzleGenerator(catalog, seed);
+    }
+
+    /**
+     * Checks if the starts are enumerated from a tablebase, so that {@link #count(int)} and
+     * {@link #maxLength()} are known.
+     */
+    public boolean isEnumerated() {
+        return catalog != null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the length of the hardest puzzle.
+     */
+    public int maxLength() {
+        requireEnumerated();
+        return catalog.maxLength();
+    }
+
+    /**
+     * Gets the number of valid starts with an optimal solution length.
+     * @param length the number of moves
+     */
+    public int count(int length) {
+        requireEnumerated();
+        return catalog.count(length);
+    }
+
+    /**
+     * Gets the number of valid starts.
+     */
+    public int count() {
+        requireEnumerated();
+        return catalog.count();
+    }
+
+    private void requireEnumerated() {
+        if (catalog == null) {
+            throw new IllegalStateException("The starts of a sampling generator are not enumerated");
+        }
+    }
+
+    /**
+     * Picks a random valid start.
+     * @param into the position receiving the puzzle
+     */
+    public void next(Position into) {
+        next(1, Integer.MAX_VALUE, into);
+    }
+
+    /**
+     * Picks a random valid start with an exact optimal solution length.
+     * @param length the number of moves of the shortest solution
+     * @param into the position receiving the puzzle
+     * @throws IllegalArgumentException if there is no puzzle of that length, or a sampling generator
+     *     did not find one in time
+     */
+    public void next(int length, Position into) {
+        next(length, length, into);
+    }
+
+    /**
+     * Picks a random valid start whose optimal solution length is in a range.
+     * Every start of the range is equally likely.
+     * @param minLength the smallest number of moves of the shortest solution
+     * @param maxLength the largest number of moves of the shortest solution
+     * @param into the position receiving the puzzle
+     * @throws IllegalArgumentException if there is no puzzle in the range, or a sampling generator
+     *     did not find one in time
+     */
+    public void next(int minLength, int maxLength, Position into) {
+        if (catalog == null) {
+            sample(minLength, maxLength, into);
+            return;
+        }
+        catalog.pick(minLength, maxLength, random, into);
+    }
+
+    /**
+     * Picks a random valid start.
+     */
+    public Position next() {
+        var position = new Position(size);
+        next(position);
+        return position;
+    }
+
+    /**
+     * Picks a random valid start with an exact optimal solution length.
+     * @param length the number of moves of the shortest solution
+     */
+    public Position next(int length) {
+        var position = new Position(size);
+        next(length, position);
+        return position;
+    }
+
+    /**
+     * Tries random starts with one piece in check until the solver accepts one.
+     * @param minLength the smallest accepted solution length
+     * @param maxLength the largest accepted solution length
+     */
+    private void sample(int minLength, int maxLength, Position into) {
+        var attacks = into.attacks();
+        long clearWork = ((long) squares * squares + 63) / 64;
+        long work = 0;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS && work < MAX_SAMPLING_WORK; attempt++) {
+            int king = random.nextInt(squares);
+            boolean kingInCheck = random.nextBoolean();
+            int knight = kingInCheck
+                    ? attacks.knightTarget(king, random.nextInt(AttackTables.DIRECTIONS))
+                    : attacks.kingTarget(king, random.nextInt(AttackTables.DIRECTIONS));
+            int goal = random.nextInt(squares);
+            if (knight < 0 || goal == king || goal == knight) {
+                continue;
+            }
+            into.set(SquareStates.KING, king);
+            into.set(SquareStates.KNIGHT, knight);
+            into.set(SquareStates.GOAL, goal);
+            int solved = solver.solve(into).length();
+            work += solver.expandedStates() + clearWork;
+            if (solved > 0 && solved >= minLength && solved <= maxLength) {
+                return;
+            }
+        }
+        throw new IllegalArgumentException("No puzzle of length " + minLength
+                + (minLength == maxLength ? "" : " to " + maxLength) + " found on a " + size + "x" + size + " board");
+    }
+}
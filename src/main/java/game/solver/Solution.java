@@ -0,0 +1,82 @@
+package game.solver;
+
+import game.model.Moves;
+
+import java.util.Arrays;
+
+/**
+ * The result of solving a position: either a shortest winning move sequence
+ * or the proof that the goal cannot be reached.
+ */
+public final class Solution {
+
+    /**
+     * The solution of every position from which the goal cannot be reached.
+     */
+    public static final Solution UNSOLVABLE = new Solution(null);
+
+    private final int[] moves;
+
+    Solution(int[] moves) {
+        this.moves = moves;
+    }
+
+    public boolean isSolvable() {
+        return moves != null;
+    }
+
+    /**
+     * Gets the number of moves of the shortest solution, or -1 if there is none.
+     */
+    public int length() {
+        return moves == null ? -1 : moves.length;
+    }
+
+    /**
+     * Gets the move at an index of the solution, encoded by {@link Moves}.
+     * @param index the index of the move, starting from 0
+     */
+    public int move(int index) {
+        return moves[index];
+    }
+
+    /**
+     * Gets a copy of the moves of the solution, encoded by {@link Moves}.
+     */
+    public int[] moves() {
+        return moves == null ? new int[0] : moves.clone();
+    }
+
+    /**
+     * Formats the moves of the solution.
+     * @param size the size of the board
+     */
+    public String toString(int size) {
+        if (moves == null) {
+            return "unsolvable";
+        }
+        var sb = new StringBuilder();
+        for (int move : moves) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(Moves.toString(move, size));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Solution other && Arrays.equals(moves, other.moves);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(moves);
+    }
+
+    @Override
+    public String toString() {
+        return moves == null ? "Solution[unsolvable]" : "Solution" + Arrays.toString(moves);
+    }
+}
@@ -0,0 +1,180 @@
+package game.solver;
+
+import game.model.AttackTables;
+import game.model.Moves;
+import game.model.Position;
+import game.model.SquareStates;
+
+import java.util.Arrays;
+
+/**
+ * Finds the shortest winning move sequence of a position with a breadth-first search.
+ * The goal never moves during a game, so a search state is the pair of the king's and the knight's
+ * square, indexed as {@code king * squares + knight}. The visited set is a bitset over these indices
+ * and every buffer is allocated once per solver, so solving allocates nothing but the result.
+ * The queue starts small and grows on demand, since on large boards a search rarely visits every state.
+ * A solver is not thread-safe; use one instance per thread.
+ */
+public final class Solver {
+
+    /**
+     * The parent code of the start state; other codes are {@code 1 + direction} for king steps
+     * and {@code 9 + direction} for knight jumps.
+     */
+    private static final byte START = 0;
+
+    private final int size;
+    private final int squares;
+    private final Position current;
+    private final AttackTables attacks;
+
+    private final long[] visited;
+    private final byte[] parent;
+    private final int[] moves = new int[Position.MAX_MOVES];
+    private int[] queue;
+    private int expanded;
+
+    /**
+     * Creates a solver for a board size.
+     * @param size the size of the board
+     */
+    public Solver(int size) {
+        this.size = size;
+        this.squares = size * size;
+        this.current = new Position(size);
+        this.attacks = current.attacks();
+        int states = squares * squares;
+        this.visited = new long[(states + 63) >>> 6];
+        this.parent = new byte[states];
+        this.queue = new int[Math.min(states, 1 << 12)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of states the last {@link #solve(Position)} expanded, a measure of its work that,
+     * unlike its time, is the same on every machine.
+     */
+    public int expandedStates() {
+        return expanded;
+    }
+
+    /**
+     * Solves a position.
+     * @param start the position to solve, which is not modified
+     * @return the shortest solution, or {@link Solution#UNSOLVABLE} if the goal cannot be reached
+     */
+    public Solution solve(Position start) {
+        int goal = start.goal();
+        int king = start.king();
+        int knight = start.knight();
+        if (start.size() != size) {
+            throw new IllegalArgumentException("Board sizes differ: " + start.size() + " != " + size);
+        }
+        expanded = 0;
+        if (king < 0 || knight < 0 || goal < 0 || king == knight) {
+            return Solution.UNSOLVABLE;
+        }
+        if (start.isWon()) {
+            return new Solution(new int[0]);
+        }
+        Arrays.fill(visited, 0L);
+        int first = king * squares + knight;
+        markVisited(first);
+        parent[first] = START;
+        queue[0] = first;
+        int head = 0;
+        int tail = 1;
+        current.set(SquareStates.GOAL, goal);
+        while (head < tail) {
+            int state = queue[head++];
+            current.set(SquareStates.KING, state / squares);
+            current.set(SquareStates.KNIGHT, state % squares);
+            int found = expand(tail);
+            if (found < 0) {
+                expanded = head;
+                return reconstruct(~found);
+            }
+            tail = found;
+        }
+        expanded = head;
+        return Solution.UNSOLVABLE;
+    }
+
+    /**
+     * Checks if the goal can be reached from a position.
+     * @param start the position to check
+     */
+    public boolean isSolvable(Position start) {
+        return solve(start).isSolvable();
+    }
+
+    /**
+     * Enqueues the unvisited successors of the current state.
+     * @return the new tail of the queue, or the bitwise complement of the winning state
+     */
+    private int expand(int tail) {
+        int count = current.generateMoves(moves);
+        for (int i = 0; i < count; i++) {
+            var piece = Moves.piece(moves[i]);
+            int from = Moves.from(moves[i]);
+            int to = Moves.to(moves[i]);
+            int next = piece == SquareStates.KING
+                    ? to * squares + current.knight()
+                    : current.king() * squares + to;
+            if (isVisited(next)) {
+                continue;
+            }
+            markVisited(next);
+            parent[next] = (byte) ((piece == SquareStates.KING ? 1 : 9) + attacks.direction(piece, from, to));
+            if (to == current.goal()) {
+                return ~next;
+            }
+            if (tail == queue.length) {
+                queue = Arrays.copyOf(queue, queue.length * 2);
+            }
+            queue[tail++] = next;
+        }
+        return tail;
+    }
+
+    /**
+     * Walks the parent codes back from the winning state to the start.
+     */
+    private Solution reconstruct(int state) {
+        int length = 0;
+        for (int s = state; parent[s] != START; s = previous(s)) {
+            length++;
+        }
+        int[] moves = new int[length];
+        for (int s = state, i = length - 1; parent[s] != START; s = previous(s), i--) {
+            int prev = previous(s);
+            if (parent[s] < 9) {
+                moves[i] = Moves.encode(SquareStates.KING, prev / squares, s / squares);
+            } else {
+                moves[i] = Moves.encode(SquareStates.KNIGHT, prev % squares, s % squares);
+            }
+        }
+        return new Solution(moves);
+    }
+
+    private int previous(int state) {
+        int code = parent[state];
+        int king = state / squares;
+        int knight = state % squares;
+        if (code < 9) {
+            return attacks.kingTarget(king, AttackTables.opposite(code - 1)) * squares + knight;
+        }
+        return king * squares + attacks.knightTarget(knight, AttackTables.opposite(code - 9));
+    }
+
+    private boolean isVisited(int state) {
+        return (visited[state >>> 6] & 1L << state) != 0;
+    }
+
+    private void markVisited(int state) {
+        visited[state >>> 6] |= 1L << state;
+    }
+}
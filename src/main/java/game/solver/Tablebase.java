@@ -0,0 +1,230 @@
+package game.solver;
+
+import game.model.AttackTables;
+import game.model.Position;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The number of moves needed to win from every (king, knight, goal) configuration of a board size.
+ * The table is computed by retrograde analysis: a breadth-first search backwards from the winning
+ * positions of every goal square, with the goal squares processed in parallel.
+ *
+ * <p>The file format is a 32 byte big-endian header (magic, version, board size, reserved int,
+ * generation time in milliseconds, number of states) followed by one unsigned byte per state at
+ * index {@code (goal * squares + king) * squares + knight}. The byte is the distance to the goal,
+ * or {@code 0xFF} if the goal cannot be reached or the configuration is invalid.
+ */
+public final class Tablebase {
+
+    /**
+     * The distance of the positions from which the goal cannot be reached.
+     */
+    public static final int UNSOLVABLE = -1;
+
+    private static final int MAGIC = 0x4B485442;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int NO_DISTANCE = 0xFF;
+    private static final int MAX_DISTANCE = 0xFE;
+
+    private final int size;
+    private final int squares;
+    private final ByteBuffer data;
+    private final long generationMillis;
+
+    private Tablebase(int size, ByteBuffer data, long generationMillis) {
+        this.size = size;
+        this.squares = size * size;
+        this.data = data;
+        this.generationMillis = generationMillis;
+    }
+
+    /**
+     * Computes the tablebase of a board size using all available cores.
+     * @param size the size of the board
+     */
+    public static Tablebase generate(int size) {
+        long squares = (long) size * size;
+        if (squares * squares * squares > Integer.MAX_VALUE - HEADER_SIZE) {
+            throw new IllegalArgumentException("Board size too large for a tablebase: " + size);
+        }
+        long start = System.nanoTime();
+        int sq = (int) squares;
+        byte[] table = new byte[sq * sq * sq];
+        var attacks = AttackTables.forSize(size);
+        IntStream.range(0, sq).parallel().forEach(goal -> retrograde(attacks, sq, goal, table));
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        Logger.info("Generated {}x{} tablebase in {} ms", size, size, millis);
+        return new Tablebase(size, ByteBuffer.wrap(table), millis);
+    }
+
+    /**
+     * Fills the distances of one goal square, searching backwards from the positions
+     * where a piece stands on the goal.
+     */
+    private static void retrograde(AttackTables attacks, int squares, int goal, byte[] table) {
+        int offset = goal * squares * squares;
+        Arrays.fill(table, offset, offset + squares * squares, (byte) NO_DISTANCE);
+        int[] queue = new int[squares * squares];
+        int tail = 0;
+        for (int other = 0; other < squares; other++) {
+            if (other != goal) {
+                queue[tail++] = goal * squares + other;
+                queue[tail++] = other * squares + goal;
+            }
+        }
+        for (int i = 0; i < tail; i++) {
+            table[offset + queue[i]] = 0;
+        }
+        int head = 0;
+        while (head < tail) {
+            int state = queue[head++];
+            int king = state / squares;
+            int knight = state % squares;
+            int distance = (table[offset + state] & 0xFF) + 1;
+            if (distance > MAX_DISTANCE) {
+                throw new IllegalStateException("Distance does not fit into a byte: " + distance);
+            }
+            // the king stepped here from a square where the knight attacked it
+            for (int d = 0; d < AttackTables.DIRECTIONS; d++) {
+                int from = attacks.kingTarget(king, d);
+                if (from < 0 || from == knight || from == goal || knight == goal
+                        || !attacks.knightAttacks(knight, from)) {
+                    continue;
+                }
+                int previous = from * squares + knight;
+                if ((table[offset + previous] & 0xFF) == NO_DISTANCE) {
+                    table[offset + previous] = (byte) distance;
+                    queue[tail++] = previous;
+                }
+            }
+            // the knight jumped here from a square where the king attacked it
+            for (int d = 0; d < AttackTables.DIRECTIONS; d++) {
+                int from = attacks.knightTarget(knight, d);
+                if (from < 0 || from == king || from == goal || king == goal
+                        || !attacks.kingAttacks(king, from)) {
+                    continue;
+                }
+                int previous = king * squares + from;
+                if ((table[offset + previous] & 0xFF) == NO_DISTANCE) {
+                    table[offset + previous] = (byte) distance;
+                    queue[tail++] = previous;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the tablebase to a file, replacing it atomically.
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        var header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(0)
+                .putLong(generationMillis).putLong(stateCount()).flip();
+        MappedFiles.write(path, header, data.duplicate().clear());
+    }
+
+    /**
+     * Memory-maps a tablebase file.
+     * @param path the file written by {@link #write(Path)}
+     * @throws IOException if the file cannot be read or is not a tablebase
+     */
+    public static Tablebase map(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.BIG_ENDIAN);
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a tablebase file: " + path);
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported tablebase version " + buffer.getInt(4) + ": " + path);
+            }
+            int size = buffer.getInt(8);
+            long squares = (long) size * size;
+            long states = buffer.getLong(24);
+            if (states != squares * squares * squares || buffer.capacity() != HEADER_SIZE + states) {
+                throw new IOException("Truncated tablebase file: " + path);
+            }
+            return new Tablebase(size, buffer.slice(HEADER_SIZE, (int) states), buffer.getLong(16));
+        }
+    }
+
+    /**
+     * Maps the tablebase file if it exists, or generates it and writes it to the file. A file that is not
+     * a tablebase of the board size, such as one cut short by an older version, is generated again.
+     * @param path the tablebase file
+     * @param size the size of the board
+     * @throws IOException if the file cannot be written
+     */
+    public static Tablebase loadOrGenerate(Path path, int size) throws IOException {
+        if (Files.exists(path)) {
+            try {
+                var tablebase = map(path);
+                if (tablebase.size() == size) {
+                    return tablebase;
+                }
+            } catch (IOException e) {
+                Logger.warn("Generating the tablebase again: {}", e.getMessage());
+            }
+        }
+        var tablebase = generate(size);
+        tablebase.write(path);
+        return tablebase;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of configurations stored in the table.
+     */
+    public long stateCount() {
+        return (long) squares * squares * squares;
+    }
+
+    /**
+     * Gets how long computing the table took, in milliseconds.
+     */
+    public long generationMillis() {
+        return generationMillis;
+    }
+
+    /**
+     * Gets the number of moves needed to win.
+     * @param king the square of the king
+     * @param knight the square of the knight
+     * @param goal the square of the goal
+     * @return the distance, or {@link #UNSOLVABLE}
+     */
+    public int distance(int king, int knight, int goal) {
+        int value = data.get((goal * squares + king) * squares + knight) & 0xFF;
+        return value == NO_DISTANCE ? UNSOLVABLE : value;
+    }
+
+    /**
+     * Gets the number of moves needed to win from a position.
+     * @param position a position of the same board size
+     * @return the distance, or {@link #UNSOLVABLE}
+     */
+    public int distance(Position position) {
+        if (position.size() != size) {
+            throw new IllegalArgumentException("Board sizes differ: " + position.size() + " != " + size);
+        }
+        if (position.king() < 0 || position.knight() < 0 || position.goal() < 0) {
+            return UNSOLVABLE;
+        }
+        return distance(position.king(), position.knight(), position.goal());
+    }
+}
@@ -0,0 +1,113 @@
+package game.solver;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size, lock-free table of search results keyed by the {@link game.model.Zobrist Zobrist} key
+ * of a position. Every entry stores a best move, the depth the result was searched to and a value.
+ *
+ * <p>Entries are two plain {@code long} slots: the data and the key xor the data. A reader accepts an entry
+ * only if its key xor its data gives back the probed key, so an entry torn by two threads writing at the
+ * same time reads as a miss instead of a wrong result, and no locks or atomic operations are needed.
+ *
+ * <p>The table is divided into buckets of two entries. The first entry keeps the deepest result of the
+ * bucket and is only replaced by a result at least as deep; everything else goes to the second entry,
+ * which is always replaced. Shallow results of the current search are therefore kept without evicting
+ * the expensive deep ones.
+ */
+public final class TranspositionTable {
+
+    /**
+     * The result of a probe that found nothing.
+     */
+    public static final long MISS = 0;
+
+    private static final long OCCUPIED = 1L << 63;
+    private static final int VALUE_BITS = 15;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int bucketMask;
+
+    /**
+     * Creates an empty table.
+     * @param entries the number of entries, rounded up to a power of two (at least 2)
+     */
+    public TranspositionTable(int entries) {
+        if (entries < 1 || entries > 1 << 30) {
+            throw new IllegalArgumentException("Invalid number of entries: " + entries);
+        }
+        int capacity = Math.max(2, Integer.highestOneBit(entries - 1) << 1);
+        this.keys = new long[capacity];
+        this.data = new long[capacity];
+        this.bucketMask = capacity / 2 - 1;
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Stores the result of a position, following the replacement policy of the buckets.
+     * @param key the Zobrist key of the position
+     * @param move the best move, encoded by {@link game.model.Moves}
+     * @param depth the depth the position was searched to, between 0 and 65535
+     * @param value the value of the position, between -16384 and 16383
+     */
+    public void store(long key, int move, int depth, int value) {
+        long entry = OCCUPIED
+                | (long) (value & (1 << VALUE_BITS) - 1) << 48
+                | (long) (depth & 0xFFFF) << 32
+                | move & 0xFFFFFFFFL;
+        int deep = ((int) (key ^ key >>> 32) & bucketMask) << 1;
+        long deepData = data[deep];
+        if (deepData == MISS || (keys[deep] ^ deepData) == key || depth >= depth(deepData)) {
+            write(deep, key, entry);
+        } else {
+            write(deep + 1, key, entry);
+        }
+    }
+
+    /**
+     * Looks up the result of a position.
+     * @param key the Zobrist key of the position
+     * @return the entry, to be decoded by {@link #move(long)}, {@link #depth(long)} and {@link #value(long)},
+     *         or {@link #MISS}
+     */
+    public long probe(long key) {
+        int deep = ((int) (key ^ key >>> 32) & bucketMask) << 1;
+        for (int i = deep; i <= deep + 1; i++) {
+            long entry = data[i];
+            if (entry != MISS && (keys[i] ^ entry) == key) {
+                return entry;
+            }
+        }
+        return MISS;
+    }
+
+    private void write(int index, long key, long entry) {
+        keys[index] = key ^ entry;
+        data[index] = entry;
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(data, 0L);
+    }
+
+    public static int move(long entry) {
+        return (int) entry;
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> 32) & 0xFFFF;
+    }
+
+    public static int value(long entry) {
+        // shift the top value bit into the sign bit, then back down with sign extension
+        return (int) (entry << 1 >> 64 - VALUE_BITS);
+    }
+}
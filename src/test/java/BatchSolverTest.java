@@ -0,0 +1,48 @@
+import game.solver.BatchSolver;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+public class BatchSolverTest {
+
+    @Test
+    public void testSolveStream() throws IOException {
+        // Test that plain and JSON lines are solved and invalid lines are skipped
+        var input = "5 1 5 2 7 6\n"
+                + "[3, 3, 1, 2, 2, 2]\n"
+                + "\n"
+                + "0 0 7 7 3 4\n"
+                + "1 2 3\n";
+        List<BatchSolver.Result> results = new ArrayList<>();
+        var stats = new BatchSolver(8, 2).solve(new BufferedReader(new StringReader(input)), results::add);
+        results.sort(Comparator.comparingLong(BatchSolver.Result::line));
+        Assertions.assertEquals(3, stats.positions());
+        Assertions.assertEquals(2, stats.solvable());
+        Assertions.assertEquals(8, results.get(0).solution().length());
+        Assertions.assertEquals(1, results.get(1).solution().length());
+        Assertions.assertEquals(4, results.get(2).line());
+        Assertions.assertFalse(results.get(2).solution().isSolvable());
+    }
+
+    @Test
+    public void testRejectSignsAndOverflow() throws IOException {
+        // Test that negative and overlong numbers invalidate their line instead of naming another square
+        var input = "-5 1 5 2 7 6\n"
+                + "5 1 5 2 7 4294967302\n"
+                + "5 1 5 2 7 6\n";
+        var caller = Thread.currentThread();
+        List<BatchSolver.Result> results = new ArrayList<>();
+        var stats = new BatchSolver(8, 2).solve(new BufferedReader(new StringReader(input)), result -> {
+            Assertions.assertSame(caller, Thread.currentThread());
+            results.add(result);
+        });
+        Assertions.assertEquals(1, stats.positions());
+        Assertions.assertEquals(3, results.get(0).line());
+    }
+}
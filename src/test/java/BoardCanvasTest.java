@@ -0,0 +1,38 @@
+import game.BoardCanvas;
+import game.ImageCache;
+import game.metrics.Metrics;
+import game.model.GameModel;
+import game.model.SquareStates;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class BoardCanvasTest {
+
+    @Test
+    public void testImagesAreDecodedOnce() {
+        // Test that the piece images are decoded once and then served from the cache, as the metrics show
+        ImageCache.preload();
+        long decodes = ImageCache.decodes();
+        long hits = Metrics.counter("image.hits").sum();
+        var image = ImageCache.get(SquareStates.KING);
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertSame(image, ImageCache.get(SquareStates.KING));
+        }
+        Assertions.assertEquals(3, decodes);
+        Assertions.assertEquals(decodes, Metrics.histogram("image.decode").count());
+        Assertions.assertTrue(ImageCache.decodeNanos() > 0);
+        Assertions.assertEquals(hits + 101, Metrics.counter("image.hits").sum());
+        Assertions.assertTrue(Metrics.dump().contains("image.decode"));
+    }
+
+    @Test
+    public void testFramesAreRecorded() {
+        // Test that painting the board records its frame time
+        var frames = Metrics.histogram("canvas.frame");
+        long count = frames.count();
+        var canvas = new BoardCanvas(new GameModel(), 400);
+        canvas.paintAll();
+        Assertions.assertEquals(count + 2, frames.count());
+        Assertions.assertTrue(frames.max() > 0);
+    }
+}
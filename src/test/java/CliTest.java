@@ -0,0 +1,126 @@
+import game.cli.Cli;
+import game.io.SaveFormat;
+import game.io.SaveStore;
+import game.model.GameModel;
+import game.model.SquareStates;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class CliTest {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+    private final Cli cli = new Cli(new PrintStream(out, true, StandardCharsets.UTF_8), new PrintStream(err, true, StandardCharsets.UTF_8));
+
+    @Test
+    public void testGenerateAndSolve(@TempDir Path dir) throws IOException {
+        // Test that generated puzzles can be piped into the solver and are all solvable
+        Assertions.assertEquals(Cli.OK, cli.run("generate", "--count", "20", "--seed", "3", "--length", "4"));
+        var file = dir.resolve("puzzles.txt");
+        Files.writeString(file, out.toString(StandardCharsets.UTF_8));
+        Assertions.assertEquals(20, Files.readAllLines(file).size());
+        out.reset();
+        Assertions.assertEquals(Cli.OK, cli.run("solve", "--threads", "2", file.toString()));
+        var results = out.toString(StandardCharsets.UTF_8).lines().toList();
+        Assertions.assertEquals(20, results.size());
+        for (var result : results) {
+            Assertions.assertTrue(result.contains(" true 4 "), result);
+        }
+    }
+
+    @Test
+    public void testVerifySave(@TempDir Path dir) throws IOException {
+        // Test that a save of legal moves passes and one with a forged move fails
+        var model = new GameModel();
+        model.move(4, 0, SquareStates.KNIGHT);
+        model.move(5, 2, SquareStates.KNIGHT);
+        model.undo();
+        var file = dir.resolve("save.bin");
+        SaveFormat.write(model, file);
+        Assertions.assertEquals(Cli.OK, cli.run("verify-save", file.toString()));
+        Assertions.assertTrue(out.toString(StandardCharsets.UTF_8).contains("1 played, 1 undone"));
+
+        model.move(0, 0, SquareStates.KING);
+        SaveFormat.write(model, file);
+        Assertions.assertEquals(Cli.FAILED, cli.run("verify-save", file.toString()));
+    }
+
+    @Test
+    public void testUsage() {
+        // Test that malformed command lines are rejected
+        Assertions.assertFalse(Cli.isCommand("--help"));
+        Assertions.assertEquals(Cli.USAGE, cli.run());
+        Assertions.assertEquals(Cli.USAGE, cli.run("generate", "--count"));
+        Assertions.assertEquals(Cli.USAGE, cli.run("generate", "--size", "99"));
+        // 2^32 + 1 must not wrap around to a count of 1
+        Assertions.assertEquals(Cli.USAGE, cli.run("generate", "--count", "4294967297"));
+        Assertions.assertEquals(Cli.USAGE, cli.run("verify-save"));
+        Assertions.assertEquals(Cli.OK, cli.run("help"));
+    }
+
+    @Test
+    public void testSlots(@TempDir Path dir) throws IOException {
+        // Test that saves can be imported into a store, listed, exported and deleted
+        var save = dir.resolve("save.bin");
+        SaveFormat.write(new GameModel(), save);
+        var store = dir.resolve("saves.khs").toString();
+        Assertions.assertEquals(Cli.OK, cli.run("slots", store, "import", "first", save.toString()));
+        Assertions.assertEquals(Cli.OK, cli.run("slots", store));
+        Assertions.assertEquals("first", out.toString(StandardCharsets.UTF_8).strip());
+        var exported = dir.resolve("exported.bin");
+        Assertions.assertEquals(Cli.OK, cli.run("slots", store, "export", "first", exported.toString()));
+        Assertions.assertEquals(Cli.OK, cli.run("verify-save", exported.toString()));
+        Assertions.assertEquals(Cli.OK, cli.run("slots", store, "delete", "first"));
+        Assertions.assertEquals(Cli.FAILED, cli.run("slots", store, "export", "first", exported.toString()));
+    }
+
+    @Test
+    public void testReplay(@TempDir Path dir) throws IOException {
+        // Test that saves are replayed from files and stores, and that a broken save fails the audit
+        var model = new GameModel();
+        model.move(4, 0, SquareStates.KNIGHT);
+        model.move(5, 2, SquareStates.KNIGHT);
+        var save = dir.resolve("save.bin");
+        SaveFormat.write(model, save);
+        var store = dir.resolve("saves.khs");
+        try (var slots = SaveStore.open(store)) {
+            slots.put("slot", SaveFormat.snapshot(model));
+        }
+        Assertions.assertEquals(Cli.OK, cli.run("replay", "--store", store.toString(), "--seek", "1", save.toString()));
+        var lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        Assertions.assertEquals(2, lines.size());
+        Assertions.assertTrue(lines.get(1).startsWith("slot\t2 moves\tlegal"));
+
+        model.move(0, 0, SquareStates.KING);
+        SaveFormat.write(model, save);
+        Assertions.assertEquals(Cli.FAILED, cli.run("replay", save.toString()));
+    }
+
+    @Test
+    public void testCatalog(@TempDir Path dir) throws IOException {
+        // Test that the catalog is built once and its statistics are printed
+        var file = dir.resolve("puzzles.khpc").toString();
+        Assertions.assertEquals(Cli.OK, cli.run("catalog", "--size", "6", file));
+        var stats = out.toString(StandardCharsets.UTF_8);
+        Assertions.assertTrue(stats.startsWith("board:   6x6"));
+        Assertions.assertTrue(stats.contains("hardest: "));
+        out.reset();
+        Assertions.assertEquals(Cli.OK, cli.run("catalog", "--size", "6", file));
+        Assertions.assertEquals(stats, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testStartupNeedsRuns() {
+        // Test that the startup benchmark refuses to run no game
+        Assertions.assertEquals(Cli.USAGE, cli.run("startup", "--runs", "0"));
+        Assertions.assertTrue(err.toString(StandardCharsets.UTF_8).contains("--runs must be positive"));
+    }
+}
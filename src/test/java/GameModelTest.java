@@ -1,4 +1,7 @@
 import game.model.GameModel;
+import game.model.MoveJournal;
+import game.model.Moves;
+import game.model.Position;
 import game.model.SquareStates;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -6,6 +9,11 @@ import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class GameModelTest {
 
@@ -146,4 +154,217 @@ public class GameModelTest {
         var boardString = gameModel.toString();
         Assertions.assertEquals(expectedString, boardString);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testBoardSizes() {
+        // Test that models of different sizes can be used side by side
+        var small = new GameModel(5);
+        var large = new GameModel(64);
+        Assertions.assertEquals(8, gameModel.getSize());
+        Assertions.assertEquals(5, small.getSize());
+        Assertions.assertEquals(64, large.getSize());
+        large.move(63, 63, SquareStates.KING);
+        Assertions.assertEquals(SquareStates.KING, large.getSquareState(63, 63));
+        Assertions.assertEquals(SquareStates.GOAL, small.getSquareState(4, 3));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new GameModel(65));
+    }
+
+    @Test
+    public void testUndoRedo() {
+        // Test that the journal takes moves back and plays them again
+        gameModel.move(4, 1, SquareStates.KING);
+        gameModel.move(3, 1, SquareStates.KING);
+        Assertions.assertEquals(2, gameModel.getJournal().ply());
+        Assertions.assertTrue(gameModel.undo());
+        Assertions.assertEquals(4, gameModel.getRow(SquareStates.KING));
+        Assertions.assertTrue(gameModel.undo());
+        Assertions.assertFalse(gameModel.undo());
+        Assertions.assertEquals(5, gameModel.getRow(SquareStates.KING));
+        Assertions.assertTrue(gameModel.redo());
+        Assertions.assertEquals(4, gameModel.getRow(SquareStates.KING));
+        gameModel.move(4, 0, SquareStates.KING);
+        Assertions.assertFalse(gameModel.redo());
+        Assertions.assertEquals(2, gameModel.getJournal().length());
+    }
+
+    @Test
+    public void testSeek() {
+        // Test jumping to any ply of the journal
+        for (int row = 4; row >= 0; row--) {
+            gameModel.move(row, 1, SquareStates.KING);
+        }
+        gameModel.seek(1);
+        Assertions.assertEquals(4, gameModel.getRow(SquareStates.KING));
+        gameModel.seek(5);
+        Assertions.assertEquals(0, gameModel.getRow(SquareStates.KING));
+        gameModel.seek(0);
+        Assertions.assertEquals(5, gameModel.getRow(SquareStates.KING));
+        Assertions.assertEquals(SquareStates.NONE, gameModel.getSquareState(0, 1));
+
+        // a jump over every move publishes the position once, and of the listened squares only the one reached
+        var positionChanges = new AtomicInteger();
+        var squareChanges = new AtomicInteger();
+        gameModel.positionProperty().addListener((observable, oldValue, newValue) -> positionChanges.incrementAndGet());
+        for (int row = 0; row < 5; row++) {
+            gameModel.squareProperty(row, 1).addListener((observable, oldValue, newValue) -> squareChanges.incrementAndGet());
+        }
+        gameModel.seek(5);
+        Assertions.assertEquals(1, positionChanges.get());
+        Assertions.assertEquals(1, squareChanges.get());
+    }
+
+    @Test
+    public void testRepetitions() {
+        // Test that a knight going back and forth repeats the starting position
+        long start = gameModel.getZobristKey();
+        gameModel.move(4, 0, SquareStates.KNIGHT);
+        Assertions.assertNotEquals(start, gameModel.getZobristKey());
+        Assertions.assertEquals(0, gameModel.getRepetitions());
+        gameModel.move(5, 2, SquareStates.KNIGHT);
+        Assertions.assertEquals(start, gameModel.getZobristKey());
+        Assertions.assertEquals(1, gameModel.getRepetitions());
+        gameModel.setPositions(new ArrayList<>(List.of(5, 1, 5, 2, 7, 6)));
+        Assertions.assertEquals(start, gameModel.getZobristKey());
+        Assertions.assertEquals(0, gameModel.getRepetitions());
+    }
+
+    @Test
+    public void testUpdatePublishesOnce() {
+        // Test that replacing the position publishes the position once and only the squares that changed
+        var positionChanges = new AtomicInteger();
+        var squareChanges = new AtomicInteger();
+        gameModel.positionProperty().addListener((observable, oldValue, newValue) -> {
+            positionChanges.incrementAndGet();
+            // the board is complete whenever a listener looks at it
+            Assertions.assertEquals(newValue.longValue(), gameModel.getPosition().pack());
+        });
+        for (int row = 0; row < gameModel.getSize(); row++) {
+            for (int col = 0; col < gameModel.getSize(); col++) {
+                gameModel.squareProperty(row, col).addListener((observable, oldValue, newValue) -> squareChanges.incrementAndGet());
+            }
+        }
+        gameModel.setPositions(new ArrayList<>(List.of(5, 1, 4, 3, 7, 6)));
+        Assertions.assertEquals(1, positionChanges.get());
+        Assertions.assertEquals(2, squareChanges.get());
+
+        gameModel.update(() -> {
+            gameModel.setKing(0, 0);
+            gameModel.update(() -> gameModel.setKing(5, 1));
+        });
+        Assertions.assertEquals(1, positionChanges.get());
+        Assertions.assertEquals(2, squareChanges.get());
+        Assertions.assertEquals(SquareStates.KING, gameModel.squareProperty(5, 1).get());
+    }
+
+    @Test
+    public void testMovePublishesOnce() {
+        // Test that a move, an undo and a redo each invalidate the position once, with the board complete for the square listeners
+        var invalidations = new AtomicInteger();
+        gameModel.positionProperty().addListener(observable -> invalidations.incrementAndGet());
+        gameModel.squareProperty(4, 0).addListener((observable, oldValue, newValue) ->
+                Assertions.assertEquals(gameModel.getPosition().pack(), gameModel.positionProperty().get()));
+        gameModel.move(4, 0, SquareStates.KNIGHT);
+        Assertions.assertEquals(1, invalidations.get());
+        gameModel.positionProperty().get();
+        Assertions.assertTrue(gameModel.undo());
+        gameModel.positionProperty().get();
+        Assertions.assertTrue(gameModel.redo());
+        Assertions.assertEquals(3, invalidations.get());
+    }
+
+    @Test
+    public void testSnapshotFromAnotherThread() throws Exception {
+        // Test that a reader thread only ever sees complete positions while the board is replaced
+        var first = new ArrayList<>(List.of(5, 1, 5, 2, 7, 6));
+        var second = new ArrayList<>(List.of(0, 0, 2, 1, 7, 7));
+        gameModel.setPositions(first);
+        long firstSnapshot = gameModel.getSnapshot();
+        gameModel.setPositions(second);
+        long secondSnapshot = gameModel.getSnapshot();
+        Assertions.assertEquals(gameModel.getPosition().pack(), secondSnapshot);
+
+        var running = new AtomicBoolean(true);
+        var reads = new AtomicInteger();
+        var reader = CompletableFuture.runAsync(() -> {
+            while (running.get()) {
+                long snapshot = gameModel.getSnapshot();
+                Assertions.assertTrue(snapshot == firstSnapshot || snapshot == secondSnapshot);
+                reads.incrementAndGet();
+            }
+        });
+        for (int i = 0; i < 20_000 && !reader.isDone(); i++) {
+            gameModel.setPositions(i % 2 == 0 ? first : second);
+        }
+        running.set(false);
+        reader.get(5, TimeUnit.SECONDS);
+        Assertions.assertTrue(reads.get() > 0);
+    }
+
+    @Test
+    public void testJournalLimit() {
+        // Test that a full journal forgets its oldest moves and keeps undoing the newest
+        var model = new GameModel(8, 4);
+        for (int i = 0; i < 10; i++) {
+            model.move(model.getRow(SquareStates.KING) == 5 ? 4 : 5, 1, SquareStates.KING);
+        }
+        var journal = model.getJournal();
+        Assertions.assertEquals(4, journal.length());
+        Assertions.assertEquals(4, journal.capacity());
+        Assertions.assertEquals(6, journal.forgotten());
+        Assertions.assertEquals(4, journal.toArray().length);
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertTrue(model.undo());
+        }
+        Assertions.assertFalse(model.undo());
+        Assertions.assertEquals(5, model.getRow(SquareStates.KING));
+        model.seek(2);
+        var copy = new MoveJournal(1, 3);
+        copy.copyFrom(journal);
+        Assertions.assertEquals(1, copy.ply());
+        Assertions.assertEquals(3, copy.length());
+        Assertions.assertEquals(journal.get(1), copy.get(0));
+        Assertions.assertEquals(7, copy.forgotten());
+    }
+
+    @Test
+    public void testRepetitionsFollowJournal() {
+        // Test that the counted repetitions match a walk over the journal through moves, undos, a full journal and a restore
+        var model = new GameModel(8, 6);
+        var random = new Random(7);
+        int[] rows = {3, 4, 5};
+        for (int i = 0; i < 200; i++) {
+            int choice = random.nextInt(4);
+            if (choice == 0) {
+                model.undo();
+            } else if (choice == 1) {
+                model.redo();
+            } else {
+                model.move(rows[random.nextInt(rows.length)], 1, SquareStates.KING);
+            }
+            Assertions.assertEquals(walkRepetitions(model), model.getRepetitions(), "step " + i);
+        }
+        var restored = new GameModel(8, 6);
+        restored.restore(model.getPosition(), model.getJournal());
+        Assertions.assertEquals(walkRepetitions(model), restored.getRepetitions());
+        while (restored.undo()) {
+            Assertions.assertEquals(walkRepetitions(restored), restored.getRepetitions());
+        }
+    }
+
+    /**
+     * Counts the repetitions of the current position by replaying the journal backwards from it.
+     */
+    private static int walkRepetitions(GameModel model) {
+        var journal = model.getJournal();
+        var position = Position.fromPacked(model.getPosition().pack());
+        long current = position.pack();
+        int repetitions = 0;
+        for (int i = journal.ply() - 1; i >= 0; i--) {
+            position.set(Moves.piece(journal.get(i)), Moves.from(journal.get(i)));
+            if (position.pack() == current) {
+                repetitions++;
+            }
+        }
+        return repetitions;
+    }
+}
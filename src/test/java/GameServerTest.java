@@ -0,0 +1,165 @@
+import game.model.Moves;
+import game.model.Position;
+import game.model.SquareStates;
+import game.server.GameServer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+public class GameServerTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private HttpResponse<String> send(GameServer server, String method, String path, String body) throws IOException, InterruptedException {
+        var request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    public void testSession() throws Exception {
+        // Test that a session validates moves, undoes and redoes them and can be ended
+        try (var server = new GameServer(0, Duration.ofMinutes(1))) {
+            var created = send(server, "POST", "/sessions", null);
+            Assertions.assertEquals(201, created.statusCode());
+            var id = created.body().strip();
+            var state = send(server, "GET", "/sessions/" + id, null).body();
+            Assertions.assertTrue(state.contains("position 5 1 5 2 7 6\n"));
+            Assertions.assertTrue(state.contains("mover KNIGHT\n"));
+
+            Assertions.assertEquals(409, send(server, "POST", "/sessions/" + id + "/move", "0 0").statusCode());
+            Assertions.assertEquals(400, send(server, "POST", "/sessions/" + id + "/move", "4").statusCode());
+            var moved = send(server, "POST", "/sessions/" + id + "/move", "4 0\n5 2\n4 0");
+            Assertions.assertEquals(200, moved.statusCode());
+            Assertions.assertEquals("ok 3", moved.body().strip());
+            var partly = send(server, "POST", "/sessions/" + id + "/move", "5 2 0 0");
+            Assertions.assertEquals(409, partly.statusCode());
+            Assertions.assertEquals("Illegal move 2, 1 played", partly.body().strip());
+
+            Assertions.assertEquals(200, send(server, "POST", "/sessions/" + id + "/undo", null).statusCode());
+            Assertions.assertTrue(send(server, "GET", "/sessions/" + id, null).body().contains("ply 3 4\n"));
+            Assertions.assertEquals("5 1 4 0 7 6\n", send(server, "GET", "/sessions/" + id + "/position", null).body());
+            Assertions.assertEquals(200, send(server, "POST", "/sessions/" + id + "/redo", null).statusCode());
+            Assertions.assertEquals(409, send(server, "POST", "/sessions/" + id + "/redo", null).statusCode());
+
+            Assertions.assertTrue(send(server, "GET", "/stats", null).body().startsWith("sessions 1\n"));
+            Assertions.assertEquals(204, send(server, "DELETE", "/sessions/" + id, null).statusCode());
+            Assertions.assertEquals(404, send(server, "GET", "/sessions/" + id, null).statusCode());
+        }
+    }
+
+    @Test
+    public void testSessionsAreIndependent() throws Exception {
+        // Test that the sessions have their own positions and that idle ones are dropped
+        try (var server = new GameServer(0, Duration.ofMillis(100))) {
+            var first = send(server, "POST", "/sessions", null).body().strip();
+            var second = send(server, "POST", "/sessions?size=10", null).body().strip();
+            Assertions.assertEquals(200, send(server, "POST", "/sessions/" + first + "/move", "4 0").statusCode());
+            Assertions.assertTrue(send(server, "GET", "/sessions/" + second, null).body().contains("position 7 1 7 2 9 8\n"));
+            Assertions.assertEquals(400, send(server, "POST", "/sessions?size=100", null).statusCode());
+            Assertions.assertEquals(2, server.sessionCount());
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (server.sessionCount() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            Assertions.assertEquals(0, server.sessionCount());
+        }
+    }
+
+    @Test
+    public void testLimits() throws Exception {
+        // Test that session ids are random, that sessions over the limit answer 503 and that long bodies answer 413
+        try (var server = new GameServer(0, Duration.ofMinutes(1), 2)) {
+            var first = send(server, "POST", "/sessions", null).body().strip();
+            var second = send(server, "POST", "/sessions", null).body().strip();
+            Assertions.assertEquals(32, first.length());
+            Assertions.assertNotEquals(first, second);
+            Assertions.assertEquals(503, send(server, "POST", "/sessions", null).statusCode());
+            Assertions.assertEquals(204, send(server, "DELETE", "/sessions/" + second, null).statusCode());
+            Assertions.assertEquals(201, send(server, "POST", "/sessions", null).statusCode());
+
+            var moves = "4 0\n5 2\n".repeat(GameServer.MAX_BODY_BYTES / 8 + 1);
+            Assertions.assertEquals(413, send(server, "POST", "/sessions/" + first + "/move", moves).statusCode());
+            Assertions.assertTrue(send(server, "GET", "/sessions/" + first, null).body().contains("ply 0 0\n"));
+        }
+    }
+
+    @Test
+    public void testNoMoveAfterWin() throws Exception {
+        // Test that a batch of moves stops once the goal is reached, even if the other piece is still in check
+        var path = wonWithMover(new Position(8, 41, 42, 62));
+        var won = path.get(path.size() - 1);
+        var body = new StringBuilder();
+        for (int i = 1; i < path.size(); i++) {
+            int to = movedTo(path.get(i - 1), path.get(i));
+            body.append(won.row(to)).append(' ').append(won.col(to)).append('\n');
+        }
+        // a move that would be legal if the game went on
+        var moves = new int[Position.MAX_MOVES];
+        Assertions.assertTrue(won.generateMoves(moves) > 0);
+        int extra = Moves.to(moves[0]);
+        body.append(won.row(extra)).append(' ').append(won.col(extra));
+        int played = path.size() - 1;
+        try (var server = new GameServer(0, Duration.ofMinutes(1))) {
+            var id = send(server, "POST", "/sessions", null).body().strip();
+            var moved = send(server, "POST", "/sessions/" + id + "/move", body.toString());
+            Assertions.assertEquals(409, moved.statusCode());
+            Assertions.assertEquals("Illegal move " + (played + 1) + ", " + played + " played", moved.body().strip());
+            Assertions.assertTrue(send(server, "GET", "/sessions/" + id, null).body().contains("won true\n"));
+        }
+    }
+
+    /**
+     * Searches breadth first for a won position in which a piece is still in check.
+     * @return the positions from the start to the won one
+     */
+    private static List<Position> wonWithMover(Position start) {
+        var parents = new HashMap<Long, Long>();
+        var queue = new ArrayDeque<Long>();
+        parents.put(start.pack(), null);
+        queue.add(start.pack());
+        var moves = new int[Position.MAX_MOVES];
+        while (!queue.isEmpty()) {
+            long packed = queue.poll();
+            var position = Position.fromPacked(packed);
+            if (position.isWon()) {
+                if (position.mover() != SquareStates.NONE) {
+                    var path = new ArrayList<Position>();
+                    for (Long at = packed; at != null; at = parents.get(at)) {
+                        path.add(0, Position.fromPacked(at));
+                    }
+                    return path;
+                }
+                continue;
+            }
+            int count = position.generateMoves(moves);
+            for (int i = 0; i < count; i++) {
+                var next = Position.fromPacked(packed);
+                next.move(Moves.piece(moves[i]), Moves.to(moves[i]));
+                if (!parents.containsKey(next.pack())) {
+                    parents.put(next.pack(), packed);
+                    queue.add(next.pack());
+                }
+            }
+        }
+        throw new AssertionError("No such position");
+    }
+
+    /**
+     * Gets the square the king or the knight moved to between two positions.
+     */
+    private static int movedTo(Position before, Position after) {
+        return before.king() != after.king() ? after.king() : after.knight();
+    }
+}
@@ -0,0 +1,83 @@
+import game.model.Moves;
+import game.model.Position;
+import game.solver.HintService;
+import game.solver.Solver;
+import game.solver.Tablebase;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class HintServiceTest {
+
+    @Test
+    public void testHintIsFirstMoveOfSolution() throws Exception {
+        // Test that the hint starts a shortest solution and is cached afterwards
+        var position = new Position(8, 41, 42, 62);
+        try (var hints = new HintService(8)) {
+            Assertions.assertNull(hints.cachedHint(position));
+            int move = hints.hint(position).get(5, TimeUnit.SECONDS);
+            Assertions.assertEquals(new Solver(8).solve(position).move(0), move);
+            Assertions.assertEquals(move, hints.cachedHint(position));
+            Assertions.assertTrue(hints.hint(position).isDone());
+        }
+    }
+
+    @Test
+    public void testTablebaseHint() throws Exception {
+        // Test that a tablebase hint moves one step closer to the goal
+        var tablebase = Tablebase.generate(6);
+        var position = new Position(6, 19, 20, 34);
+        int distance = tablebase.distance(position);
+        try (var hints = new HintService(6, tablebase)) {
+            int move = hints.hint(position).get(5, TimeUnit.SECONDS);
+            position.move(Moves.piece(move), Moves.to(move));
+            Assertions.assertEquals(distance - 1, tablebase.distance(position));
+            Assertions.assertEquals(HintService.NO_HINT, hints.hint(new Position(6, 34, 20, 34)).get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testNewerPositionReplacesOlder() throws Exception {
+        // Test that requesting another position settles the previous request without waiting for it
+        try (var hints = new HintService(8)) {
+            var first = hints.hint(new Position(8, 41, 42, 62));
+            var second = hints.hint(new Position(8, 41, 26, 62));
+            second.get(5, TimeUnit.SECONDS);
+            Assertions.assertTrue(first.isDone());
+        }
+    }
+
+    @Test
+    public void testLateTablebase() throws Exception {
+        // Test that a tablebase handed over after the start answers the next hints and the distance
+        var tablebase = Tablebase.generate(6);
+        var position = new Position(6, 19, 20, 34);
+        try (var hints = new HintService(6)) {
+            Assertions.assertThrows(IllegalStateException.class, () -> hints.movesToWin(position));
+            hints.setTablebase(tablebase);
+            Assertions.assertEquals(tablebase.distance(position), hints.movesToWin(position));
+            int move = hints.hint(position).get(5, TimeUnit.SECONDS);
+            position.move(Moves.piece(move), Moves.to(move));
+            Assertions.assertEquals(tablebase.distance(position), hints.movesToWin(position));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> hints.setTablebase(Tablebase.generate(5)));
+        }
+    }
+
+    @Test
+    public void testFailedHintIsComputedAgain() throws Exception {
+        // Test that a hint whose search threw is not handed out again for the same position
+        // the king is off the 6x6 board, which the solver cannot handle but the tablebase reports as unsolvable
+        var position = new Position(6, 36, 20, 34);
+        try (var hints = new HintService(6)) {
+            var failed = hints.hint(position);
+            var error = Assertions.assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+            Assertions.assertInstanceOf(IndexOutOfBoundsException.class, error.getCause());
+            hints.setTablebase(Tablebase.generate(6));
+            var retried = hints.hint(position);
+            Assertions.assertNotSame(failed, retried);
+            Assertions.assertEquals(HintService.NO_HINT, retried.get(5, TimeUnit.SECONDS));
+        }
+    }
+}
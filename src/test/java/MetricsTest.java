@@ -0,0 +1,46 @@
+import game.metrics.Histogram;
+import game.metrics.Metrics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MetricsTest {
+
+    @Test
+    public void testPercentiles() {
+        // Test that percentiles are reported within the 12.5% precision of the buckets
+        Histogram histogram = Metrics.histogram("test.percentiles");
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000);
+        }
+        Assertions.assertEquals(100_000, histogram.count());
+        Assertions.assertEquals(100_000_000, histogram.max());
+        Assertions.assertEquals(50_000_000, histogram.percentile(0.5), 50_000_000 * 0.125);
+        Assertions.assertEquals(99_000_000, histogram.percentile(0.99), 99_000_000 * 0.125);
+        Assertions.assertEquals(100_000_000, histogram.percentile(1.0));
+        Assertions.assertEquals(50_000_500, histogram.mean(), 1);
+        histogram.reset();
+        Assertions.assertEquals(0, histogram.percentile(0.5));
+    }
+
+    @Test
+    public void testSmallValues() {
+        // Test that values below 16 ns are exact and negative durations count as 0
+        Histogram histogram = Metrics.histogram("test.small");
+        histogram.record(7);
+        histogram.record(-3);
+        Assertions.assertEquals(0, histogram.percentile(0.5));
+        Assertions.assertEquals(7, histogram.percentile(1.0));
+    }
+
+    @Test
+    public void testRegistry() {
+        // Test that metrics are shared by name and appear in the dump
+        Assertions.assertSame(Metrics.counter("test.counter"), Metrics.counter("test.counter"));
+        Metrics.counter("test.counter").add(42);
+        Metrics.histogram("test.dump").record(1500);
+        var dump = Metrics.dump();
+        Assertions.assertTrue(dump.contains("test.counter"));
+        Assertions.assertTrue(dump.contains("42"));
+        Assertions.assertTrue(dump.contains("test.dump"));
+    }
+}
@@ -0,0 +1,97 @@
+import game.model.AttackTables;
+import game.model.Moves;
+import game.model.Position;
+import game.model.SquareStates;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+public class PositionTest {
+
+    @Test
+    public void testPackAndUnpack() {
+        // Test that a packed position restores every square
+        var position = new Position(8, 41, 42, 62);
+        var restored = Position.fromPacked(position.pack());
+        Assertions.assertEquals(position, restored);
+        Assertions.assertEquals(8, restored.size());
+        Assertions.assertEquals(41, restored.king());
+        Assertions.assertEquals(42, restored.knight());
+        Assertions.assertEquals(62, restored.goal());
+    }
+
+    @Test
+    public void testPackEmptyPosition() {
+        // Test that pieces which are not placed survive packing
+        var position = new Position(64);
+        var restored = Position.fromPacked(position.pack());
+        Assertions.assertEquals(Position.NO_SQUARE, restored.king());
+        Assertions.assertEquals(Position.NO_SQUARE, restored.goal());
+    }
+
+    @Test
+    public void testIsLegal() {
+        // Test that only the piece in check can move, and not onto the other piece
+        var position = new Position(8);
+        position.set(SquareStates.KING, position.square(3, 3));
+        position.set(SquareStates.KNIGHT, position.square(1, 2));
+        position.set(SquareStates.GOAL, position.square(7, 7));
+        Assertions.assertTrue(position.isLegal(SquareStates.KING, position.square(2, 2)));
+        Assertions.assertFalse(position.isLegal(SquareStates.KING, position.square(5, 5)));
+        Assertions.assertFalse(position.isLegal(SquareStates.KNIGHT, position.square(3, 3)));
+    }
+
+    @Test
+    public void testIsWon() {
+        // Test that a piece on the goal wins the game
+        var position = new Position(8, 0, 10, 1);
+        Assertions.assertFalse(position.isWon());
+        position.move(SquareStates.KING, 1);
+        Assertions.assertTrue(position.isWon());
+        Assertions.assertEquals(SquareStates.KING, position.stateAt(1));
+    }
+
+    @Test
+    public void testAttackTables() {
+        // Test the precomputed attacks of a corner square and their reverse directions
+        var tables = AttackTables.forSize(8);
+        Assertions.assertEquals(2, Long.bitCount(tables.knightMask(0)));
+        Assertions.assertEquals(3, Long.bitCount(tables.kingMask(0)));
+        Assertions.assertTrue(tables.knightAttacks(0, 17));
+        Assertions.assertFalse(tables.knightAttacks(0, 9));
+        for (int d = 0; d < AttackTables.DIRECTIONS; d++) {
+            int target = tables.knightTarget(27, d);
+            Assertions.assertEquals(27, tables.knightTarget(target, AttackTables.opposite(d)));
+        }
+        Assertions.assertSame(tables, AttackTables.forSize(8));
+    }
+
+    @Test
+    public void testGenerateMoves() {
+        // Test that the generated moves are exactly the legal ones, for every king and knight square
+        var position = new Position(6);
+        position.set(SquareStates.GOAL, 35);
+        int[] moves = new int[Position.MAX_MOVES];
+        for (int king = 0; king < 36; king++) {
+            for (int knight = 0; knight < 36; knight++) {
+                position.set(SquareStates.KING, king);
+                position.set(SquareStates.KNIGHT, knight);
+                int count = position.generateMoves(moves);
+                int legal = 0;
+                for (var piece : new SquareStates[]{SquareStates.KING, SquareStates.KNIGHT}) {
+                    for (int to = 0; to < 36; to++) {
+                        if (position.isLegal(piece, to)) {
+                            int move = Moves.encode(piece, position.get(piece), to);
+                            Assertions.assertTrue(IntStream.of(moves).limit(count).anyMatch(m -> m == move));
+                            Assertions.assertEquals(piece, position.mover());
+                            legal++;
+                        }
+                    }
+                }
+                Assertions.assertEquals(legal, count);
+                Assertions.assertEquals(count, position.forEachMove(move -> { }));
+            }
+        }
+    }
+}
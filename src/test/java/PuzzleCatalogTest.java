@@ -0,0 +1,90 @@
+import game.model.Position;
+import game.model.SquareStates;
+import game.solver.PuzzleCatalog;
+import game.solver.PuzzleGenerator;
+import game.solver.Tablebase;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+public class PuzzleCatalogTest {
+
+    @Test
+    public void testStartsAreSortedByLength() {
+        // Test that every start of a length is a valid start with that distance
+        var tablebase = Tablebase.generate(6);
+        var catalog = PuzzleCatalog.build(tablebase);
+        var position = new Position(6);
+        int total = 0;
+        for (int length = 0; length <= catalog.maxLength(); length++) {
+            for (int i = 0; i < catalog.count(length); i++) {
+                catalog.get(length, i, position);
+                Assertions.assertEquals(length, tablebase.distance(position));
+                Assertions.assertNotEquals(position.isInCheck(SquareStates.KING), position.isInCheck(SquareStates.KNIGHT));
+            }
+            total += catalog.count(length);
+        }
+        Assertions.assertEquals(0, catalog.count(0));
+        Assertions.assertTrue(catalog.count(catalog.maxLength()) > 0);
+        Assertions.assertEquals(catalog.count(), total);
+        Assertions.assertEquals(total, catalog.count(1, catalog.maxLength()));
+        Assertions.assertEquals(catalog.count(2) + catalog.count(3), catalog.count(2, 3));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> catalog.get(1, catalog.count(1), position));
+    }
+
+    @Test
+    public void testWriteAndMap(@TempDir Path dir) throws IOException {
+        // Test that a mapped catalog holds the same starts as the built one, and that a file is only built once
+        var file = dir.resolve("puzzles.khpc");
+        var built = PuzzleCatalog.loadOrBuild(file, 8);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        var mapped = PuzzleCatalog.loadOrBuild(file, 8);
+        Assertions.assertEquals(modified, Files.getLastModifiedTime(file).toMillis());
+        Assertions.assertEquals(built.count(), mapped.count());
+        Assertions.assertEquals(built.maxLength(), mapped.maxLength());
+        var expected = new Position(8);
+        var actual = new Position(8);
+        for (int length = 1; length <= built.maxLength(); length++) {
+            Assertions.assertEquals(built.count(length), mapped.count(length));
+            for (int i = 0; i < built.count(length); i += 97) {
+                built.get(length, i, expected);
+                mapped.get(length, i, actual);
+                Assertions.assertEquals(expected, actual);
+            }
+        }
+        Assertions.assertTrue(mapped.stats().contains("(" + mapped.maxLength() + " moves)"));
+
+        Files.write(file, Files.readAllBytes(file), StandardOpenOption.APPEND);
+        Assertions.assertThrows(IOException.class, () -> PuzzleCatalog.map(file));
+        // a damaged file is built again rather than failing every start
+        Assertions.assertEquals(built.count(), PuzzleCatalog.loadOrBuild(file, 8).count());
+        Assertions.assertEquals(built.count(), PuzzleCatalog.map(file).count());
+        try (var files = Files.list(dir)) {
+            Assertions.assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void testPickInRange() {
+        // Test that the picks stay in the requested range, also through a generator
+        var catalog = PuzzleCatalog.build(Tablebase.generate(8));
+        var tablebase = Tablebase.generate(8);
+        var random = new SplittableRandom(5);
+        var position = new Position(8);
+        for (int i = 0; i < 1000; i++) {
+            catalog.pick(10, 12, random, position);
+            int distance = tablebase.distance(position);
+            Assertions.assertTrue(distance >= 10 && distance <= 12);
+        }
+        var generator = new PuzzleGenerator(catalog, 1);
+        generator.next(catalog.maxLength(), catalog.maxLength(), position);
+        Assertions.assertEquals(catalog.maxLength(), tablebase.distance(position));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> catalog.pick(50, 60, random, position));
+    }
+}
@@ -0,0 +1,59 @@
+import game.model.Position;
+import game.model.SquareStates;
+import game.solver.PuzzleGenerator;
+import game.solver.Solver;
+import game.solver.Tablebase;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class PuzzleGeneratorTest {
+
+    private static PuzzleGenerator generator;
+
+    @BeforeAll
+    public static void setUp() {
+        generator = new PuzzleGenerator(Tablebase.generate(8), 42);
+    }
+
+    @Test
+    public void testTargetLength() {
+        // Test that puzzles of a requested length are valid and need exactly that many moves
+        var solver = new Solver(8);
+        var puzzle = new Position(8);
+        for (int length = 1; length <= generator.maxLength(); length++) {
+            generator.next(length, puzzle);
+            Assertions.assertNotEquals(puzzle.isInCheck(SquareStates.KING), puzzle.isInCheck(SquareStates.KNIGHT));
+            Assertions.assertEquals(length, solver.solve(puzzle).length());
+        }
+    }
+
+    @Test
+    public void testSameSeedSamePuzzles() {
+        // Test that the puzzles are reproducible from the seed
+        var first = generator.withSeed(7);
+        var second = generator.withSeed(7);
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(first.next(), second.next());
+        }
+    }
+
+    @Test
+    public void testUnknownLength() {
+        // Test that asking for an impossible length fails
+        Assertions.assertThrows(IllegalArgumentException.class, () -> generator.next(generator.maxLength() + 1));
+    }
+
+    @Test
+    public void testSamplingGivesUp() {
+        // Test that a sampling generator stops searching for an impossible length and stays reproducible,
+        // as the search is bounded by the work of the solver rather than by time
+        var sampling = PuzzleGenerator.sampling(16, 3);
+        var again = PuzzleGenerator.sampling(16, 3);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> sampling.next(1000));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> again.next(1000));
+        var puzzle = sampling.next(2);
+        Assertions.assertEquals(2, new Solver(16).solve(puzzle).length());
+        Assertions.assertEquals(puzzle, again.next(2));
+    }
+}
@@ -0,0 +1,109 @@
+import game.model.GameModel;
+import game.model.Moves;
+import game.model.Position;
+import game.model.SquareStates;
+import game.replay.Replay;
+import game.replay.ReplayPlayer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+public class ReplayTest {
+
+    /**
+     * Plays random legal moves on a model, avoiding the moves after which no move is legal.
+     */
+    private static GameModel randomGame(int length, long seed) {
+        var model = new GameModel();
+        var random = new Random(seed);
+        var moves = new int[Position.MAX_MOVES];
+        var next = new Position(model.getSize());
+        for (int i = 0; i < length; i++) {
+            int count = model.getLegalMoves(moves);
+            int move;
+            do {
+                move = moves[random.nextInt(count)];
+                next.copyFrom(model.getPosition());
+                next.move(Moves.piece(move), Moves.to(move));
+            } while (next.mover() == SquareStates.NONE);
+            int to = Moves.to(move);
+            model.move(to / model.getSize(), to % model.getSize(), Moves.piece(move));
+        }
+        return model;
+    }
+
+    @Test
+    public void testPositionAt() {
+        // Test that the positions rebuilt from the snapshots are the ones reached by playing the moves
+        var model = randomGame(500, 1);
+        var replay = Replay.of(model);
+        Assertions.assertEquals(500, replay.length());
+        Assertions.assertEquals(Replay.LEGAL, replay.firstIllegalMove());
+        Assertions.assertEquals(new GameModel().getPosition(), replay.start());
+        var position = replay.start();
+        var rebuilt = new Position(position.size());
+        for (int ply = 0; ply <= replay.length(); ply++) {
+            replay.positionAt(ply, rebuilt);
+            Assertions.assertEquals(position, rebuilt);
+            Assertions.assertEquals(position.pack(), replay.packedAt(ply));
+            if (ply < replay.length()) {
+                position.move(Moves.piece(replay.move(ply)), Moves.to(replay.move(ply)));
+            }
+        }
+        Assertions.assertEquals(model.getPosition(), position);
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> replay.packedAt(501));
+    }
+
+    @Test
+    public void testSeek() {
+        // Test that seeking sets the position and the journal of a model, so the rest can be redone
+        var replay = Replay.of(randomGame(200, 2));
+        var model = new GameModel();
+        replay.seek(model, 130);
+        Assertions.assertEquals(replay.packedAt(130), model.getPosition().pack());
+        Assertions.assertEquals(130, model.getJournal().ply());
+        Assertions.assertEquals(200, model.getJournal().length());
+        Assertions.assertTrue(model.redo());
+        Assertions.assertEquals(replay.packedAt(131), model.getPosition().pack());
+        replay.seek(model, 0);
+        Assertions.assertEquals(replay.start(), model.getPosition());
+    }
+
+    @Test
+    public void testIllegalMoves() {
+        // Test that a move not starting from the square of its piece is rejected and an illegal one is found
+        var start = new GameModel().getPosition();
+        int knight = start.knight();
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new Replay(start, new int[]{Moves.encode(SquareStates.KING, knight, 0)}, 8));
+        var replay = new Replay(start, new int[]{Moves.encode(SquareStates.KNIGHT, knight, 0)}, 8);
+        Assertions.assertEquals(0, replay.firstIllegalMove());
+    }
+
+    @Test
+    public void testPlayer() throws Exception {
+        // Test that the player steps through every move and that a zero delay jumps to the end at once
+        var replay = Replay.of(randomGame(20, 3));
+        var model = new GameModel();
+        try (var player = new ReplayPlayer(replay, model, Runnable::run)) {
+            player.seek(0).get(5, TimeUnit.SECONDS);
+            Assertions.assertEquals(replay.start(), model.getPosition());
+            long recorded = model.getJournal().recorded();
+            player.setDelay(Duration.ofMillis(1));
+            player.play().get(5, TimeUnit.SECONDS);
+            Assertions.assertEquals(20, player.ply());
+            Assertions.assertEquals(replay.packedAt(20), model.getPosition().pack());
+            // each tick redoes a move instead of copying the journal again
+            Assertions.assertEquals(recorded, model.getJournal().recorded());
+
+            player.seek(5).get(5, TimeUnit.SECONDS);
+            player.setDelay(Duration.ZERO);
+            player.play().get(5, TimeUnit.SECONDS);
+            Assertions.assertEquals(replay.packedAt(20), model.getPosition().pack());
+            Assertions.assertEquals(20, model.getJournal().ply());
+        }
+    }
+}
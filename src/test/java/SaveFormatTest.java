@@ -0,0 +1,94 @@
+import game.io.SaveFormat;
+import game.model.GameModel;
+import game.model.SquareStates;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class SaveFormatTest {
+
+    @Test
+    public void testWriteAndRead(@TempDir Path dir) throws IOException {
+        // Test that a long journal and its cursor survive saving and loading
+        var model = new GameModel();
+        for (int i = 0; i < 100_000; i++) {
+            model.move(i % 2 == 0 ? 4 : 5, 1, SquareStates.KING);
+        }
+        model.seek(99_999);
+        var file = dir.resolve("save.bin");
+        SaveFormat.write(model, file);
+
+        var loaded = new GameModel();
+        SaveFormat.read(file, loaded);
+        Assertions.assertEquals(model.getPositions(), loaded.getPositions());
+        Assertions.assertEquals(100_000, loaded.getJournal().length());
+        Assertions.assertEquals(99_999, loaded.getJournal().ply());
+        Assertions.assertArrayEquals(model.getJournal().toArray(), loaded.getJournal().toArray());
+        Assertions.assertTrue(loaded.redo());
+        Assertions.assertEquals(5, loaded.getRow(SquareStates.KING));
+    }
+
+    @Test
+    public void testImportJson(@TempDir Path dir) throws IOException {
+        // Test that the JSON saves of earlier versions are still accepted
+        var file = dir.resolve("save.json");
+        Files.writeString(file, "[[4,1,5,2,7,6],"
+                + "\"[{\\\"currentRow\\\":4,\\\"currentCol\\\":1,\\\"prevPiece\\\":\\\"KING\\\",\\\"prevRow\\\":5,\\\"prevCol\\\":1}]\","
+                + "\"[{\\\"currentRow\\\":3,\\\"currentCol\\\":1,\\\"prevPiece\\\":\\\"KING\\\",\\\"prevRow\\\":4,\\\"prevCol\\\":1}]\"]",
+                StandardCharsets.UTF_8);
+        var model = new GameModel();
+        SaveFormat.read(file, model);
+        Assertions.assertEquals(4, model.getRow(SquareStates.KING));
+        Assertions.assertEquals(1, model.getJournal().ply());
+        Assertions.assertTrue(model.redo());
+        Assertions.assertEquals(3, model.getRow(SquareStates.KING));
+        model.seek(0);
+        Assertions.assertEquals(5, model.getRow(SquareStates.KING));
+    }
+
+    @Test
+    public void testOtherBoardSize(@TempDir Path dir) throws IOException {
+        // Test that a save of another board size is rejected without touching the model
+        var file = dir.resolve("save.bin");
+        SaveFormat.write(new GameModel(10), file);
+        var model = new GameModel();
+        Assertions.assertThrows(IOException.class, () -> SaveFormat.read(file, model));
+        Assertions.assertEquals(5, model.getRow(SquareStates.KING));
+    }
+
+    @Test
+    public void testCorruptSaves(@TempDir Path dir) throws IOException {
+        // Test that malformed saves fail with an IOException instead of a runtime exception or a huge allocation
+        var file = dir.resolve("save.bin");
+        SaveFormat.write(new GameModel(), file);
+        var valid = Files.readAllBytes(file);
+
+        var hugeLength = Arrays.copyOf(valid, valid.length + 4);
+        System.arraycopy(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0}, 0, hugeLength, 14, 6);
+        assertCorrupt(file, hugeLength);
+
+        var negativePly = Arrays.copyOf(valid, valid.length + 4);
+        System.arraycopy(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F}, 0, negativePly, 15, 5);
+        assertCorrupt(file, negativePly);
+
+        var otherSize = valid.clone();
+        otherSize[6] = 0x7F;
+        assertCorrupt(file, otherSize);
+
+        assertCorrupt(file, "[[4,1,5,2,7,6],[],\"[]\"]".getBytes(StandardCharsets.UTF_8));
+        assertCorrupt(file, "[[4,1,5,\"2\",7,6],\"[]\",\"[]\"]".getBytes(StandardCharsets.UTF_8));
+        assertCorrupt(file, "[[4,1,5,2,7,6],\"[{\\\"prevPiece\\\":\\\"GOAL\\\"}]\",\"[]\"]".getBytes(StandardCharsets.UTF_8));
+        assertCorrupt(file, "{}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertCorrupt(Path file, byte[] content) throws IOException {
+        Files.write(file, content);
+        Assertions.assertThrows(IOException.class, () -> SaveFormat.load(file, 8));
+    }
+}
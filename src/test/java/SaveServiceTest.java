@@ -0,0 +1,94 @@
+import game.io.SaveFormat;
+import game.io.SaveService;
+import game.model.GameModel;
+import game.model.SquareStates;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class SaveServiceTest {
+
+    @Test
+    public void testSaveAndLoad(@TempDir Path dir) throws Exception {
+        // Test that a background save can be loaded back in the background, leaving no temporary file
+        var file = dir.resolve("save.bin");
+        var model = new GameModel();
+        model.move(4, 0, SquareStates.KNIGHT);
+        try (var saves = new SaveService(Runnable::run)) {
+            saves.save(model, file).get(5, TimeUnit.SECONDS);
+            var loaded = new GameModel();
+            saves.load(file, loaded).get(5, TimeUnit.SECONDS);
+            Assertions.assertEquals(model.getPositions(), loaded.getPositions());
+            Assertions.assertEquals(1, loaded.getJournal().ply());
+            Assertions.assertEquals(model.getZobristKey(), loaded.getZobristKey());
+        }
+        try (var files = Files.list(dir)) {
+            Assertions.assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void testFailedLoad(@TempDir Path dir) throws Exception {
+        // Test that a missing or empty save fails the future and leaves the model unchanged
+        var model = new GameModel();
+        var before = model.getPositions();
+        Files.writeString(dir.resolve("empty.json"), "[]");
+        try (var saves = new SaveService(Runnable::run)) {
+            var missing = saves.load(dir.resolve("missing.bin"), model);
+            var error = Assertions.assertThrows(ExecutionException.class, () -> missing.get(5, TimeUnit.SECONDS));
+            Assertions.assertInstanceOf(IOException.class, error.getCause().getCause());
+            var empty = saves.load(dir.resolve("empty.json"), model);
+            Assertions.assertThrows(ExecutionException.class, () -> empty.get(5, TimeUnit.SECONDS));
+        }
+        Assertions.assertEquals(before, model.getPositions());
+    }
+
+    @Test
+    public void testAutosaveKeepsNewest(@TempDir Path dir) throws IOException {
+        // Test that after many coalesced autosaves the file holds the last position
+        var file = dir.resolve("autosave.bin");
+        var model = new GameModel();
+        try (var saves = new SaveService(Runnable::run)) {
+            for (int i = 0; i < 1000; i++) {
+                model.move(i % 2 == 0 ? 4 : 5, i % 2 == 0 ? 0 : 2, SquareStates.KNIGHT);
+                saves.autosave(model, file);
+            }
+        }
+        var saved = SaveFormat.load(file, 8);
+        Assertions.assertEquals(1000, saved.journal().ply());
+        Assertions.assertEquals(model.getPosition(), saved.position());
+    }
+
+    @Test
+    public void testAutosaveFollowsUndoneMoves(@TempDir Path dir) throws IOException {
+        // Test that the autosave holds the journal after moves are undone, replaced and the game is restored
+        var file = dir.resolve("autosave.bin");
+        var model = new GameModel();
+        try (var saves = new SaveService(Runnable::run)) {
+            for (int i = 0; i < 40; i++) {
+                model.move(i % 2 == 0 ? 4 : 5, i % 2 == 0 ? 0 : 2, SquareStates.KNIGHT);
+                saves.autosave(model, file);
+                if (i % 5 == 4) {
+                    model.undo();
+                    model.undo();
+                    saves.autosave(model, file);
+                }
+            }
+            var other = new GameModel();
+            other.move(4, 0, SquareStates.KNIGHT);
+            model.restore(other.getPosition(), other.getJournal());
+            model.move(5, 2, SquareStates.KNIGHT);
+            saves.autosave(model, file);
+        }
+        var saved = SaveFormat.load(file, 8);
+        Assertions.assertArrayEquals(model.getJournal().toArray(), saved.journal().toArray());
+        Assertions.assertEquals(model.getJournal().ply(), saved.journal().ply());
+        Assertions.assertEquals(model.getPosition(), saved.position());
+    }
+}
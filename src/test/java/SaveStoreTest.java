@@ -0,0 +1,124 @@
+import game.io.SaveFormat;
+import game.io.SaveStore;
+import game.model.GameModel;
+import game.model.SquareStates;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+public class SaveStoreTest {
+
+    @Test
+    public void testSlots(@TempDir Path dir) throws IOException {
+        // Test that hundreds of slots survive reopening, with replaced and deleted slots
+        var file = dir.resolve("saves.khs");
+        var model = new GameModel();
+        try (var store = SaveStore.open(file)) {
+            for (int i = 0; i < 300; i++) {
+                model.move(i % 2 == 0 ? 4 : 5, i % 2 == 0 ? 0 : 2, SquareStates.KNIGHT);
+                store.put("slot " + i, SaveFormat.snapshot(model));
+            }
+            store.put("slot 0", SaveFormat.snapshot(model));
+            Assertions.assertTrue(store.delete("slot 1"));
+            Assertions.assertFalse(store.delete("slot 1"));
+        }
+        try (var store = SaveStore.open(file)) {
+            Assertions.assertEquals(299, store.size());
+            Assertions.assertFalse(store.contains("slot 1"));
+            Assertions.assertEquals("slot 0", store.list().get(298));
+            Assertions.assertEquals(300, store.get("slot 0").orElseThrow().journal().ply());
+            Assertions.assertEquals(43, store.get("slot 42").orElseThrow().journal().ply());
+            Assertions.assertTrue(store.get("slot 1").isEmpty());
+        }
+    }
+
+    @Test
+    public void testCompact(@TempDir Path dir) throws IOException {
+        // Test that compaction drops replaced and deleted slots and keeps the live ones
+        var file = dir.resolve("saves.khs");
+        var model = new GameModel();
+        try (var store = SaveStore.open(file)) {
+            store.put("a", SaveFormat.snapshot(model));
+            store.put("b", SaveFormat.snapshot(model));
+            model.move(4, 0, SquareStates.KNIGHT);
+            store.put("a", SaveFormat.snapshot(model));
+            store.delete("b");
+            Assertions.assertTrue(store.fileSize() > store.liveSize());
+            store.compact();
+            Assertions.assertEquals(store.liveSize(), store.fileSize());
+            Assertions.assertEquals(List.of("a"), store.list());
+            Assertions.assertEquals(1, store.get("a").orElseThrow().journal().ply());
+        }
+    }
+
+    @Test
+    public void testTornRecord(@TempDir Path dir) throws IOException {
+        // Test that a record cut short by a crash is dropped and the earlier slots stay readable
+        var file = dir.resolve("saves.khs");
+        try (var store = SaveStore.open(file)) {
+            store.put("a", SaveFormat.snapshot(new GameModel()));
+            store.put("b", SaveFormat.snapshot(new GameModel()));
+        }
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        long torn = Files.size(file);
+        try (var store = SaveStore.open(file)) {
+            Assertions.assertEquals(List.of("a"), store.list());
+            Assertions.assertTrue(store.get("a").isPresent());
+            // opening leaves the file alone, the next write replaces the incomplete record
+            Assertions.assertEquals(torn, Files.size(file));
+            store.put("c", SaveFormat.snapshot(new GameModel()));
+        }
+        try (var store = SaveStore.open(file)) {
+            Assertions.assertEquals(List.of("a", "c"), store.list());
+            Assertions.assertTrue(store.get("c").isPresent());
+        }
+        Files.writeString(file, "not a store");
+        Assertions.assertThrows(IOException.class, () -> SaveStore.open(file));
+    }
+
+    @Test
+    public void testCorruptRecord(@TempDir Path dir) throws IOException {
+        // Test that a malformed record in the middle of the file fails opening instead of dropping the slots after it
+        var file = dir.resolve("saves.khs");
+        try (var store = SaveStore.open(file)) {
+            store.put("a", SaveFormat.snapshot(new GameModel()));
+            store.put("b", SaveFormat.snapshot(new GameModel()));
+        }
+        long size = Files.size(file);
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // the type byte of the first record, just after the file header
+            channel.write(ByteBuffer.wrap(new byte[] {7}), 5);
+        }
+        Assertions.assertThrows(IOException.class, () -> SaveStore.open(file));
+        Assertions.assertEquals(size, Files.size(file));
+    }
+
+    @Test
+    public void testCorruptLength(@TempDir Path dir) throws IOException {
+        // Test that a middle record whose length runs past the end of the file fails opening and is not truncated
+        var file = dir.resolve("saves.khs");
+        try (var store = SaveStore.open(file)) {
+            for (var name : List.of("a", "b", "c")) {
+                store.put(name, SaveFormat.snapshot(new GameModel()));
+            }
+        }
+        long size = Files.size(file);
+        long record = (size - 5) / 3;
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // the payload length of "b", after its type byte, name length and one byte name
+            channel.write(ByteBuffer.allocate(4).putInt(1 << 30).flip(), 5 + record + 3 + 1);
+        }
+        Assertions.assertThrows(IOException.class, () -> SaveStore.open(file));
+        Assertions.assertEquals(size, Files.size(file));
+    }
+}
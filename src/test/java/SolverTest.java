@@ -0,0 +1,57 @@
+import game.model.Moves;
+import game.model.Position;
+import game.solver.Solver;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SolverTest {
+
+    private Solver solver;
+
+    @BeforeEach
+    public void setUp() {
+        solver = new Solver(8);
+    }
+
+    @Test
+    public void testOneMoveSolution() {
+        // Test that the king in check steps straight onto the goal
+        var start = new Position(8, 3 * 8 + 3, 8 + 2, 2 * 8 + 2);
+        var solution = solver.solve(start);
+        Assertions.assertTrue(solution.isSolvable());
+        Assertions.assertEquals(1, solution.length());
+        Assertions.assertEquals(start.king(), Moves.from(solution.move(0)));
+        Assertions.assertEquals(start.goal(), Moves.to(solution.move(0)));
+    }
+
+    @Test
+    public void testSolutionIsLegalAndWins() {
+        // Test that replaying the solution of the initial position only makes legal moves and wins
+        var start = new Position(8, 5 * 8 + 1, 5 * 8 + 2, 7 * 8 + 6);
+        var solution = solver.solve(start);
+        Assertions.assertTrue(solution.isSolvable());
+        var replay = Position.fromPacked(start.pack());
+        for (int move : solution.moves()) {
+            Assertions.assertEquals(Moves.from(move), replay.get(Moves.piece(move)));
+            Assertions.assertTrue(replay.isLegal(Moves.piece(move), Moves.to(move)));
+            replay.move(Moves.piece(move), Moves.to(move));
+        }
+        Assertions.assertTrue(replay.isWon());
+    }
+
+    @Test
+    public void testUnsolvable() {
+        // Test that a position where no piece is in check cannot be solved
+        var start = new Position(8, 0, 63, 30);
+        Assertions.assertFalse(solver.solve(start).isSolvable());
+        Assertions.assertEquals(-1, solver.solve(start).length());
+    }
+
+    @Test
+    public void testAlreadyWon() {
+        // Test that a piece on the goal needs no moves
+        var start = new Position(8, 10, 20, 10);
+        Assertions.assertEquals(0, solver.solve(start).length());
+    }
+}
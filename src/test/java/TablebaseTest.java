@@ -0,0 +1,87 @@
+import game.model.GameModel;
+import game.model.Position;
+import game.solver.HintService;
+import game.solver.Solver;
+import game.solver.Tablebase;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class TablebaseTest {
+
+    private static Tablebase tablebase;
+
+    @BeforeAll
+    public static void setUp() {
+        tablebase = Tablebase.generate(8);
+    }
+
+    @Test
+    public void testDistancesMatchSolver() {
+        // Test that the tablebase agrees with the solver for the first goal squares
+        var solver = new Solver(8);
+        for (int goal = 0; goal < 4; goal++) {
+            for (int king = 0; king < 64; king++) {
+                for (int knight = 0; knight < 64; knight++) {
+                    if (king == knight) {
+                        continue;
+                    }
+                    var position = new Position(8, king, knight, goal);
+                    Assertions.assertEquals(solver.solve(position).length(), tablebase.distance(position),
+                            position.toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWriteAndMap(@TempDir Path dir) throws IOException {
+        // Test that a mapped tablebase returns the same distances as the generated one
+        var file = dir.resolve("tablebase-8.bin");
+        tablebase.write(file);
+        var mapped = Tablebase.map(file);
+        Assertions.assertEquals(8, mapped.size());
+        Assertions.assertEquals(tablebase.generationMillis(), mapped.generationMillis());
+        for (int king = 0; king < 64; king++) {
+            Assertions.assertEquals(tablebase.distance(king, 42, 62), mapped.distance(king, 42, 62));
+        }
+    }
+
+    @Test
+    public void testTruncatedFileIsGeneratedAgain(@TempDir Path dir) throws IOException {
+        // Test that a tablebase file cut short is generated again instead of failing to load
+        var file = dir.resolve("tablebase-6.bin");
+        Tablebase.generate(6).write(file);
+        long size = Files.size(file);
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size / 2);
+        }
+        Assertions.assertThrows(IOException.class, () -> Tablebase.map(file));
+        var generated = Tablebase.loadOrGenerate(file, 6);
+        Assertions.assertEquals(6, generated.size());
+        Assertions.assertEquals(size, Files.size(file));
+        Assertions.assertEquals(6, Tablebase.map(file).size());
+        try (var files = Files.list(dir)) {
+            Assertions.assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void testMovesToWin() {
+        // Test the O(1) lookup of the initial position
+        var model = new GameModel();
+        try (var hints = new HintService(8, tablebase)) {
+            Assertions.assertEquals(8, hints.movesToWin(model.getPosition()));
+        }
+        try (var hints = new HintService(8)) {
+            Assertions.assertThrows(IllegalStateException.class, () -> hints.movesToWin(model.getPosition()));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+import game.model.Moves;
+import game.model.Position;
+import game.model.SquareStates;
+import game.model.Zobrist;
+import game.solver.TranspositionTable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TranspositionTableTest {
+
+    @Test
+    public void testStoreAndProbe() {
+        // Test that a stored result is found again with its move, depth and negative value
+        var table = new TranspositionTable(1000);
+        Assertions.assertEquals(1024, table.capacity());
+        long key = Zobrist.forSize(8).key(new Position(8, 41, 42, 62));
+        int move = Moves.encode(SquareStates.KNIGHT, 42, 25);
+        Assertions.assertEquals(TranspositionTable.MISS, table.probe(key));
+        table.store(key, move, 12, -7);
+        long entry = table.probe(key);
+        Assertions.assertEquals(move, TranspositionTable.move(entry));
+        Assertions.assertEquals(12, TranspositionTable.depth(entry));
+        Assertions.assertEquals(-7, TranspositionTable.value(entry));
+        Assertions.assertEquals(TranspositionTable.MISS, table.probe(key + 1));
+    }
+
+    @Test
+    public void testReplacement() {
+        // Test that a shallow result does not evict a deeper one of the same bucket
+        var table = new TranspositionTable(2);
+        table.store(1, 0, 10, 1);
+        table.store(2, 0, 3, 2);
+        table.store(3, 0, 4, 3);
+        Assertions.assertEquals(1, TranspositionTable.value(table.probe(1)));
+        Assertions.assertEquals(TranspositionTable.MISS, table.probe(2));
+        Assertions.assertEquals(3, TranspositionTable.value(table.probe(3)));
+        table.store(4, 0, 10, 4);
+        Assertions.assertEquals(4, TranspositionTable.value(table.probe(4)));
+        Assertions.assertEquals(TranspositionTable.MISS, table.probe(1));
+    }
+
+    @Test
+    public void testZobristKey() {
+        // Test that the incremental key matches a key computed from scratch
+        var position = new Position(8, 41, 42, 62);
+        var zobrist = Zobrist.forSize(8);
+        long key = zobrist.key(position);
+        int move = Moves.encode(SquareStates.KNIGHT, 42, 25);
+        position.move(SquareStates.KNIGHT, 25);
+        Assertions.assertEquals(zobrist.key(position), key ^ zobrist.moveKey(move));
+        Assertions.assertNotEquals(key, zobrist.key(position));
+    }
+}